@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+/**
+ * Lookup table resolving the application identifier at a position in an element string. Keys are stored in a digit
+ * trie, since AIs are prefix-free and at most four digits long an AI is resolved in at most four character reads.
+ */
+final class ApplicationIdentifierTable {
+
+    static final int MAX_KEY_LENGTH = 4;
+
+    /**
+     * Table containing all AIs defined in {@link ApplicationIdentifier} and the AI ranges that have no constants.
+     */
+    static final ApplicationIdentifierTable STANDARD = createStandardTable();
+
+    /**
+     * An AI known by the table. Entries for AIs in the ranges 703s, 710-719 and 91-99 have no identifier.
+     */
+    static final class Entry {
+
+        final String key;
+        final ApplicationIdentifier identifier;
+        final ApplicationIdentifier.Format format;
+        final int minLength;
+        final int maxLength;
+
+        // Components of a data field in custom format loaded from a syntax dictionary, null for other entries
+        final Component[] components;
+
+        // Decoder of a custom AI, null to decode according to the format
+        final CustomApplicationIdentifiers.Decoder decoder;
+
+        Entry(String key, ApplicationIdentifier identifier, ApplicationIdentifier.Format format, int minLength, int maxLength) {
+            this(key, identifier, format, minLength, maxLength, null);
+        }
+
+        Entry(String key, ApplicationIdentifier identifier, ApplicationIdentifier.Format format, int minLength, int maxLength, Component[] components) {
+            this(key, identifier, format, minLength, maxLength, components, null);
+        }
+
+        Entry(String key, ApplicationIdentifier identifier, ApplicationIdentifier.Format format, int minLength, int maxLength, Component[] components, CustomApplicationIdentifiers.Decoder decoder) {
+            this.key = key;
+            this.identifier = identifier;
+            this.format = format;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.components = components;
+            this.decoder = decoder;
+        }
+    }
+
+    /**
+     * A part of a data field, such as the country code and the postal code in AI 421.
+     */
+    static final class Component {
+
+        final boolean numeric;
+        final int minLength;
+        final int maxLength;
+        final boolean optional;
+
+        // Length of the date and time at the start of the component to validate, 0 if not a date
+        final int dateLength;
+
+        Component(boolean numeric, int minLength, int maxLength, boolean optional, int dateLength) {
+            this.numeric = numeric;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.optional = optional;
+            this.dateLength = dateLength;
+        }
+    }
+
+    private static final class Node {
+
+        private final Node[] children = new Node[10];
+        private Entry entry;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Returns the entry for the AI starting at a position in a sequence or null if the characters at the position are
+     * not a known AI.
+     */
+    Entry lookup(CharSequence sequence, int position, int end) {
+        Node node = root;
+        int limit = Math.min(end, position + MAX_KEY_LENGTH);
+        for (int i = position; i < limit; i++) {
+            int digit = sequence.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            node = node.children[digit];
+            if (node == null) {
+                return null;
+            }
+            if (node.entry != null) {
+                return node.entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the entry for an AI given by its key or null if the key is not exactly a known AI.
+     */
+    Entry get(String key) {
+        Entry entry = lookup(key, 0, key.length());
+        return entry != null && entry.key.length() == key.length() ? entry : null;
+    }
+
+    /**
+     * Adds an entry unless it conflicts with the entries already in the table, that is when the key is already known
+     * or a known key starts with it or it starts with a known key. Returns true if the entry was added.
+     */
+    boolean addIfAbsent(Entry entry) {
+        Node node = root;
+        for (int i = 0; i < entry.key.length(); i++) {
+            node = node.children[entry.key.charAt(i) - '0'];
+            if (node == null) {
+                add(entry);
+                return true;
+            }
+            if (node.entry != null) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an entry or replaces the entry with the same key, unless a known key starts with it or it starts with a
+     * known key. Returns true if the entry was added or replaced.
+     */
+    boolean put(Entry entry) {
+        Node node = root;
+        for (int i = 0; i < entry.key.length(); i++) {
+            if (node.entry != null) {
+                return false;
+            }
+            int digit = entry.key.charAt(i) - '0';
+            if (node.children[digit] == null) {
+                node.children[digit] = new Node();
+            }
+            node = node.children[digit];
+        }
+        for (Node child : node.children) {
+            if (child != null) {
+                return false;
+            }
+        }
+        node.entry = entry;
+        return true;
+    }
+
+    /**
+     * Returns a copy of the table that can be added to without affecting this table.
+     */
+    ApplicationIdentifierTable copy() {
+        ApplicationIdentifierTable table = new ApplicationIdentifierTable();
+        copy(root, table.root);
+        return table;
+    }
+
+    private static void copy(Node from, Node to) {
+        to.entry = from.entry;
+        for (int i = 0; i < from.children.length; i++) {
+            if (from.children[i] != null) {
+                to.children[i] = new Node();
+                copy(from.children[i], to.children[i]);
+            }
+        }
+    }
+
+    private void add(Entry entry) {
+        Node node = root;
+        for (int i = 0; i < entry.key.length(); i++) {
+            int digit = entry.key.charAt(i) - '0';
+            if (node.children[digit] == null) {
+                node.children[digit] = new Node();
+            }
+            node = node.children[digit];
+        }
+        // The first definition of a key wins, same as when searching the constants in declaration order
+        if (node.entry == null) {
+            node.entry = entry;
+        }
+    }
+
+    private static ApplicationIdentifierTable createStandardTable() {
+        ApplicationIdentifierTable table = new ApplicationIdentifierTable();
+        for (ApplicationIdentifier identifier : ApplicationIdentifier.values()) {
+            table.add(new Entry(identifier.getKey(), identifier, identifier.getFormat(), identifier.getMinLength(), identifier.getMaxLength()));
+        }
+
+        // AIs 7030-7039 Number of processor with three-digit ISO country code
+        for (int i = 0; i <= 9; i++) {
+            table.add(new Entry("703" + i, null, ApplicationIdentifier.Format.CUSTOM, 4, 30));
+        }
+
+        // AIs 710-719 National Healthcare Reimbursement Number (NHRN)
+        for (int i = 0; i <= 9; i++) {
+            table.add(new Entry("71" + i, null, ApplicationIdentifier.Format.ALPHANUMERIC_VARIABLE, 1, 20));
+        }
+
+        // AIs 91-99 Company internal information
+        for (int i = 1; i <= 9; i++) {
+            table.add(new Entry("9" + i, null, ApplicationIdentifier.Format.ALPHANUMERIC_VARIABLE, 1, 30));
+        }
+        return table;
+    }
+}
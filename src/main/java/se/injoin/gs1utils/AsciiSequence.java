@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Character sequence view of single byte characters in a byte array or a byte buffer. Bytes are mapped directly to
+ * characters without charset decoding, which is correct for the subset of ASCII allowed in element strings. Indexes are
+ * absolute, for a byte buffer the position and limit of the buffer are not used or modified.
+ */
+final class AsciiSequence implements CharSequence {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final ByteBuffer buffer;
+    private final int length;
+
+    AsciiSequence(byte[] bytes) {
+        this.bytes = bytes;
+        this.offset = 0;
+        this.buffer = null;
+        this.length = bytes.length;
+    }
+
+    AsciiSequence(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            this.bytes = buffer.array();
+            this.offset = buffer.arrayOffset();
+            this.buffer = null;
+        } else {
+            this.bytes = null;
+            this.offset = 0;
+            this.buffer = buffer;
+        }
+        this.length = buffer.limit();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return (char) ((bytes != null ? bytes[offset + index] : buffer.get(index)) & 0xFF);
+    }
+
+    /**
+     * Returns the characters in the range as a string, decoded straight from the bytes.
+     */
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length);
+        }
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ((bytes != null ? bytes[offset + start + i] : buffer.get(start + i)) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    public String toString() {
+        return (String) subSequence(0, length);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rules for which AIs must and must not appear together in an element strings. The AIs present in a parse result are
+ * kept as a bitset indexed by {@link ApplicationIdentifier#ordinal()}, each rule is precompiled into bitmasks so that
+ * checking a rule is a few bitwise operations.
+ * <p>
+ * Based on GS1 General Specifications, Release 17.0.1, section 4.14.
+ */
+final class AssociationRules {
+
+    /**
+     * Number of longs in a bitset of AIs.
+     */
+    static final int WORDS = (ApplicationIdentifier.values().length + 63) >>> 6;
+
+    private static final Rule[] REQUIRED;
+    private static final Rule[] INVALID;
+
+    private static final long[] AMOUNT_PAYABLE_PER_SINGLE_ITEM = mask("392", "393");
+    private static final long[] PRICE_PER_UNIT = mask("8005");
+
+    static {
+        // Trade measures of 31 to 36 describe the trade item, logistic measures describe a logistic unit
+        List<String> tradeMeasures = new ArrayList<String>();
+        List<String> logisticMeasures = new ArrayList<String>();
+        for (ApplicationIdentifier identifier : ApplicationIdentifier.values()) {
+            String key = identifier.getKey();
+            if (key.length() == 3 && key.charAt(0) == '3' && key.charAt(1) >= '1' && key.charAt(1) <= '6') {
+                (isLogisticMeasure(key) ? logisticMeasures : tradeMeasures).add(key);
+            }
+        }
+
+        List<Rule> required = new ArrayList<Rule>();
+        required.add(new Rule(mask("02"), mask("37")));
+        required.add(new Rule(mask("37"), mask("02")));
+        required.add(new Rule(mask("10", "11", "13", "15", "16", "17"), mask("01", "02", "8006")));
+        required.add(new Rule(mask("12"), mask("8020")));
+        required.add(new Rule(mask("20", "30"), mask("01", "02")));
+        required.add(new Rule(mask("21", "240", "251"), mask("01", "8006")));
+        required.add(new Rule(mask("250"), mask("21")));
+        required.add(new Rule(mask("254"), mask("414")));
+        required.add(new Rule(mask(tradeMeasures.toArray(new String[tradeMeasures.size()])), mask("01", "02")));
+        required.add(new Rule(mask(logisticMeasures.toArray(new String[logisticMeasures.size()])), mask("00", "01", "02")));
+        required.add(new Rule(AMOUNT_PAYABLE_PER_SINGLE_ITEM, mask("01")));
+        required.add(new Rule(mask("8005"), mask("01", "02")));
+        required.add(new Rule(mask("8011"), mask("8010")));
+        required.add(new Rule(mask("8019"), mask("8017", "8018")));
+        required.add(new Rule(mask("8020"), mask("415")));
+        REQUIRED = required.toArray(new Rule[required.size()]);
+
+        List<Rule> invalid = new ArrayList<Rule>();
+        invalid.add(new Rule(mask("01"), mask("02", "37", "8006")));
+        invalid.add(new Rule(mask("02"), mask("8006")));
+        invalid.add(new Rule(mask("390"), mask("391")));
+        invalid.add(new Rule(mask("392"), mask("393")));
+        invalid.add(new Rule(mask("420"), mask("421")));
+        invalid.add(new Rule(mask("422", "423", "424", "425"), mask("426")));
+        INVALID = invalid.toArray(new Rule[invalid.size()]);
+    }
+
+    private AssociationRules() {
+    }
+
+    /**
+     * Returns true if a three-digit key of 31 to 36 is a logistic measure, that is 330 to 336, 34, 353 to 355, 362,
+     * 363 and 367 to 369. Kilograms per square metre, 337, is a trade measure.
+     */
+    private static boolean isLogisticMeasure(String key) {
+        char second = key.charAt(1);
+        char third = key.charAt(2);
+        return (second == '3' && third <= '6') || second == '4'
+                || (second == '5' && third >= '3' && third <= '5')
+                || (second == '6' && (third == '2' || third == '3' || third >= '7'));
+    }
+
+    /**
+     * A trigger and a set of other AIs. For a required rule, if any trigger AI is present at least one of the other
+     * AIs must be present. For an invalid rule, if any trigger AI is present none of the other AIs may be present.
+     */
+    private static final class Rule {
+
+        private final long[] trigger;
+        private final long[] others;
+
+        private Rule(long[] trigger, long[] others) {
+            this.trigger = trigger;
+            this.others = others;
+        }
+    }
+
+    /**
+     * Validates the AIs present in a result, on failure sets the error on the result and returns false.
+     */
+    static boolean validate(ElementStrings.ParseResult result, long[] present) {
+
+        String duplicateKey = result.getDuplicateKey();
+        if (duplicateKey != null) {
+            result.setAssociationError(ElementStrings.ParseError.DUPLICATE_AI, duplicateKey, "AI " + duplicateKey + " is repeated");
+            return false;
+        }
+
+        for (Rule rule : REQUIRED) {
+            if (intersects(present, rule.trigger) && !intersects(present, rule.others)) {
+                String key = firstKey(present, rule.trigger);
+                result.setAssociationError(ElementStrings.ParseError.MISSING_ASSOCIATED_AI, key, "AI " + key + " requires " + describe(rule.others));
+                return false;
+            }
+        }
+
+        for (Rule rule : INVALID) {
+            if (intersects(present, rule.trigger) && intersects(present, rule.others)) {
+                String key = firstKey(present, rule.trigger);
+                result.setAssociationError(ElementStrings.ParseError.INVALID_AI_COMBINATION, key, "AI " + key + " must not be used together with AI " + firstKey(present, rule.others));
+                return false;
+            }
+        }
+
+        // Amounts payable per single item are only used for variable measure trade items or together with a price per unit
+        if (intersects(present, AMOUNT_PAYABLE_PER_SINGLE_ITEM) && !intersects(present, PRICE_PER_UNIT)) {
+            String gtin = result.getString(ApplicationIdentifier.GTIN);
+            if (gtin.charAt(0) != '9') {
+                String key = firstKey(present, AMOUNT_PAYABLE_PER_SINGLE_ITEM);
+                result.setAssociationError(ElementStrings.ParseError.MISSING_ASSOCIATED_AI, key, "AI " + key + " requires AI 8005 or a variable measure GTIN");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void set(long[] bits, ApplicationIdentifier identifier) {
+        int ordinal = identifier.ordinal();
+        bits[ordinal >>> 6] |= 1L << ordinal;
+    }
+
+    static boolean isSet(long[] bits, ApplicationIdentifier identifier) {
+        int ordinal = identifier.ordinal();
+        return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the key of the first AI in both bitsets.
+     */
+    private static String firstKey(long[] a, long[] b) {
+        for (int i = 0; i < WORDS; i++) {
+            long bits = a[i] & b[i];
+            if (bits != 0) {
+                return ApplicationIdentifier.values()[(i << 6) + Long.numberOfTrailingZeros(bits)].getKey();
+            }
+        }
+        return null;
+    }
+
+    private static String describe(long[] mask) {
+        int count = 0;
+        for (long bits : mask) {
+            count += Long.bitCount(bits);
+        }
+        StringBuilder builder = new StringBuilder();
+        int written = 0;
+        for (ApplicationIdentifier identifier : ApplicationIdentifier.values()) {
+            if (isSet(mask, identifier)) {
+                builder.append(written == 0 ? (count == 1 ? "AI " : "AIs ") : written == count - 1 ? " or " : ", ");
+                builder.append(identifier.getKey());
+                written++;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static long[] mask(String... keys) {
+        long[] mask = new long[WORDS];
+        for (String key : keys) {
+            ApplicationIdentifierTable.Entry entry = ApplicationIdentifierTable.STANDARD.get(key);
+            set(mask, entry.identifier);
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Result of parsing a batch of element strings, stored by column rather than by row. Each AI that appears in the batch
+ * has a column holding the rows it is present in and the position of its data field in each of those rows, so a column
+ * takes space in proportion to the number of rows containing the AI. Values are decoded from the parsed sequences when
+ * requested, the sequences must therefore not be modified while the result is in use.
+ * <p>
+ * Rows that fail to parse keep the elements parsed before the error, the same as a partial {@link
+ * ElementStrings.ParseResult}. Instances are not thread-safe.
+ *
+ * @see ElementStrings#parseBatch(List)
+ */
+public final class BatchParseResult {
+
+    private final List<? extends CharSequence> sequences;
+    private final int rowCount;
+    private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+    private final ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+
+    // Ordinal plus one of the error for each row, zero for rows parsed completely
+    private final byte[] errors;
+    private int[] errorPositions;
+
+    private BatchParseResult(List<? extends CharSequence> sequences) {
+        this.sequences = sequences;
+        this.rowCount = sequences.size();
+        this.errors = new byte[rowCount];
+    }
+
+    static BatchParseResult parse(List<? extends CharSequence> sequences) {
+        BatchParseResult result = new BatchParseResult(sequences);
+        RowHandler handler = result.new RowHandler();
+        ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+        for (int row = 0; row < result.rowCount; row++) {
+            CharSequence sequence = sequences.get(row);
+            if (sequence == null) {
+                throw new NullPointerException("Sequence must not be null");
+            }
+            reader.reset(sequence, 0, sequence.length());
+            handler.row = row;
+            ElementStrings.parse(reader, handler);
+        }
+        return result;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns true if the row could not be parsed in its entirety.
+     */
+    public boolean isPartial(int row) {
+        return getError(row) != null;
+    }
+
+    /**
+     * Returns the error that stopped parsing of a row, or null if the row was parsed completely.
+     */
+    public ElementStrings.ParseError getError(int row) {
+        checkRow(row);
+        int error = errors[row];
+        return error != 0 ? ElementStrings.ParseError.values()[error - 1] : null;
+    }
+
+    /**
+     * Returns the position in a row of the AI where parsing stopped, or -1 if the row was parsed completely.
+     */
+    public int getErrorPosition(int row) {
+        checkRow(row);
+        return errors[row] != 0 ? errorPositions[row] : -1;
+    }
+
+    /**
+     * Returns the columns for all AIs present in the batch, in the order first encountered.
+     */
+    public Collection<Column> getColumns() {
+        return Collections.unmodifiableCollection(columns.values());
+    }
+
+    /**
+     * Returns the column for an AI, or null if the AI is not present in any row.
+     */
+    public Column getColumn(String key) {
+        return columns.get(key);
+    }
+
+    public Column getColumn(ApplicationIdentifier identifier) {
+        Column column = columns.get(identifier.getKey());
+        return column != null && column.entry.identifier == identifier ? column : null;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for row count " + rowCount);
+        }
+    }
+
+    /**
+     * The data fields of one AI across all rows of the batch. Accessors return the same values as the corresponding
+     * accessors on {@link ElementStrings.ParseResult}.
+     */
+    public final class Column {
+
+        private final ApplicationIdentifierTable.Entry entry;
+
+        // Rows containing the AI in ascending order and the position of the data field in each, grown as needed
+        private int[] rows = new int[8];
+        private int[] dataFieldStarts = new int[8];
+        private int[] dataFieldEnds = new int[8];
+        private int size = 0;
+
+        private Column(ApplicationIdentifierTable.Entry entry) {
+            this.entry = entry;
+        }
+
+        public String getKey() {
+            return entry.key;
+        }
+
+        /**
+         * Returns the AI of the column, or null for AIs without a constant in {@link ApplicationIdentifier}.
+         */
+        public ApplicationIdentifier getIdentifier() {
+            return entry.identifier;
+        }
+
+        public boolean isPresent(int row) {
+            checkRow(row);
+            return indexOf(row) != -1;
+        }
+
+        /**
+         * Returns the number of rows the AI is present in.
+         */
+        public int getCount() {
+            return size;
+        }
+
+        public Object getObject(int row) {
+            int index = presentIndexOf(row);
+            if (index == -1) {
+                return null;
+            }
+            return ElementStrings.decodeDataField(entry, reader(row), dataFieldStarts[index], dataFieldEnds[index]);
+        }
+
+        public String getString(int row) {
+            return (String) getObject(row);
+        }
+
+        public Date getDate(int row) {
+            return (Date) getObject(row);
+        }
+
+        public BigDecimal getDecimal(int row) {
+            return (BigDecimal) getObject(row);
+        }
+
+        public List getList(int row) {
+            return (List) getObject(row);
+        }
+
+        /**
+         * @see ElementStrings.ParseResult#getEpochDay(ApplicationIdentifier)
+         */
+        public long getEpochDay(int row) {
+            int index = presentIndexOf(row);
+            if (index == -1) {
+                return ElementStrings.ParseResult.NO_DATE;
+            }
+            int dateEnd = ElementStrings.getDateEnd(entry, dataFieldStarts[index], dataFieldEnds[index]);
+            if (dateEnd != -1) {
+                return reader(row).decodeEpochDay(dataFieldStarts[index], dateEnd);
+            }
+            return ElementStrings.toEpochDay((Date) decodeInFormat(row, index));
+        }
+
+        /**
+         * @see ElementStrings.ParseResult#getEpochSecond(ApplicationIdentifier)
+         */
+        public long getEpochSecond(int row) {
+            int index = presentIndexOf(row);
+            if (index == -1) {
+                return ElementStrings.ParseResult.NO_DATE;
+            }
+            int dateEnd = ElementStrings.getDateEnd(entry, dataFieldStarts[index], dataFieldEnds[index]);
+            if (dateEnd != -1) {
+                return reader(row).decodeEpochSecond(dataFieldStarts[index], dateEnd);
+            }
+            return ElementStrings.toEpochSecond((Date) decodeInFormat(row, index));
+        }
+
+        /**
+         * @see ElementStrings.ParseResult#getUnscaledDecimal(ApplicationIdentifier)
+         */
+        public long getUnscaledDecimal(int row) {
+            int index = presentIndexOf(row);
+            if (index == -1) {
+                return ElementStrings.ParseResult.NO_DECIMAL;
+            }
+            if (entry.format == ApplicationIdentifier.Format.DECIMAL) {
+                return reader(row).decodeUnscaledDecimal(dataFieldStarts[index] + 1, dataFieldEnds[index]);
+            }
+            return ((BigDecimal) decodeInFormat(row, index)).unscaledValue().longValue();
+        }
+
+        /**
+         * @see ElementStrings.ParseResult#getDecimalScale(ApplicationIdentifier)
+         */
+        public int getDecimalScale(int row) {
+            int index = presentIndexOf(row);
+            if (index == -1) {
+                return -1;
+            }
+            if (entry.format == ApplicationIdentifier.Format.DECIMAL) {
+                return reader(row).decodeDecimalScale(dataFieldStarts[index]);
+            }
+            return ((BigDecimal) decodeInFormat(row, index)).scale();
+        }
+
+        /**
+         * Decodes a data field ignoring the decoder of a custom AI, as done by the epoch and decimal accessors.
+         */
+        private Object decodeInFormat(int row, int index) {
+            return ElementStrings.decodeDataFieldInFormat(entry, reader(row), dataFieldStarts[index], dataFieldEnds[index]);
+        }
+
+        private ElementStrings.SequenceReader reader(int row) {
+            CharSequence sequence = sequences.get(row);
+            reader.reset(sequence, 0, sequence.length());
+            return reader;
+        }
+
+        /**
+         * Returns the index of a row in the column, or -1 if the AI is not present in the row.
+         */
+        private int presentIndexOf(int row) {
+            checkRow(row);
+            return indexOf(row);
+        }
+
+        private int indexOf(int row) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (rows[middle] < row) {
+                    low = middle + 1;
+                } else if (rows[middle] > row) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Adds the data field of a row, rows are added in ascending order. A repeated AI in the same row replaces the
+         * earlier data field.
+         */
+        private void set(int row, int dataFieldStart, int dataFieldEnd) {
+            if (size == 0 || rows[size - 1] != row) {
+                if (size == rows.length) {
+                    rows = grow(rows);
+                    dataFieldStarts = grow(dataFieldStarts);
+                    dataFieldEnds = grow(dataFieldEnds);
+                }
+                rows[size++] = row;
+            }
+            dataFieldStarts[size - 1] = dataFieldStart;
+            dataFieldEnds[size - 1] = dataFieldEnd;
+        }
+
+        private int[] grow(int[] array) {
+            int[] newArray = new int[array.length * 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+    }
+
+    private final class RowHandler implements ElementStrings.ElementHandler {
+
+        private int row;
+
+        public boolean element(String key, ApplicationIdentifier identifier, int dataFieldStart, int dataFieldEnd) {
+            Column column = columns.get(key);
+            if (column == null) {
+                ApplicationIdentifierTable.Entry entry = ApplicationIdentifierTable.STANDARD.lookup(key, 0, key.length());
+                column = new Column(entry);
+                columns.put(key, column);
+            }
+            column.set(row, dataFieldStart, dataFieldEnd);
+            return true;
+        }
+
+        public void error(ElementStrings.ParseError error, String key, int position) {
+            if (errorPositions == null) {
+                errorPositions = new int[rowCount];
+            }
+            errors[row] = (byte) (error.ordinal() + 1);
+            errorPositions[row] = position;
+        }
+    }
+}
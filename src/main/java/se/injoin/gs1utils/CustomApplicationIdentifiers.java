@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Definitions of custom AIs, such as company internal AIs 91 to 99 with formats agreed with a trading partner. The
+ * definitions are compiled into the same lookup table the parser uses, so a custom AI is resolved and its data field
+ * validated in the same pass as all other AIs. A custom AI can have a decoder converting its data field to a value.
+ * <p>
+ * Definitions can replace AIs that have no constant in {@link ApplicationIdentifier}, that is 703s, 710 to 719, 91 to
+ * 99 and AIs added by a syntax dictionary, and can add AIs that are not defined at all.
+ * <p>
+ * Instances are created with a {@link Builder}, are immutable and can be shared between threads.
+ *
+ * @see ElementStringParser#setCustomApplicationIdentifiers(CustomApplicationIdentifiers)
+ */
+public final class CustomApplicationIdentifiers {
+
+    /**
+     * Converts the data field of a custom AI to a value, the value is returned by
+     * {@link ElementStrings.ParseResult#getObject(String)}. Decoders are called from the threads parsing and must be
+     * thread-safe. Exceptions thrown are propagated to the caller of parse, or with lazy decoding to the caller
+     * requesting the value.
+     */
+    public interface Decoder {
+
+        /**
+         * Returns the value of a data field, the data field has been validated against the format of the AI.
+         */
+        Object decode(String key, String dataField);
+    }
+
+    private final ApplicationIdentifierTable table;
+    private final Set<String> keys;
+
+    private CustomApplicationIdentifiers(ApplicationIdentifierTable table, Set<String> keys) {
+        this.table = table;
+        this.keys = Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Returns the keys of the custom AIs in the order they were defined.
+     */
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    ApplicationIdentifierTable getTable() {
+        return table;
+    }
+
+    /**
+     * Builds custom AI definitions. Instances are not thread-safe.
+     */
+    public static final class Builder {
+
+        private final ApplicationIdentifierTable table;
+        private final Set<String> keys = new LinkedHashSet<String>();
+
+        /**
+         * Creates a builder defining custom AIs in addition to those in {@link ApplicationIdentifier}.
+         */
+        public Builder() {
+            this.table = ApplicationIdentifierTable.STANDARD.copy();
+        }
+
+        /**
+         * Creates a builder defining custom AIs in addition to those in {@link ApplicationIdentifier} and a syntax
+         * dictionary.
+         */
+        public Builder(SyntaxDictionary syntaxDictionary) {
+
+            if (syntaxDictionary == null) {
+                throw new NullPointerException("Syntax dictionary must not be null");
+            }
+
+            this.table = syntaxDictionary.getTable().copy();
+        }
+
+        /**
+         * Defines a custom AI whose data field is decoded according to its format. Fixed length formats require the
+         * minimum and maximum length to be equal, dates are six digits and decimals require a three digit key.
+         *
+         * @throws IllegalArgumentException if the key, format or lengths are invalid, or the AI is defined in
+         *                                  {@link ApplicationIdentifier} or conflicts with another AI
+         */
+        public Builder define(String key, ApplicationIdentifier.Format format, int minLength, int maxLength) {
+            return define(key, format, minLength, maxLength, null);
+        }
+
+        /**
+         * Defines a custom AI whose data field is converted by a decoder, or decoded according to its format if the
+         * decoder is null.
+         *
+         * @throws IllegalArgumentException if the key, format or lengths are invalid, or the AI is defined in
+         *                                  {@link ApplicationIdentifier} or conflicts with another AI
+         * @see #define(String, ApplicationIdentifier.Format, int, int)
+         */
+        public Builder define(String key, ApplicationIdentifier.Format format, int minLength, int maxLength, Decoder decoder) {
+
+            if (key == null) {
+                throw new NullPointerException("Key must not be null");
+            }
+            if (format == null) {
+                throw new NullPointerException("Format must not be null");
+            }
+
+            if (!Internals.isDigits(key) || key.length() < 2 || key.length() > ApplicationIdentifierTable.MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("Invalid AI " + key);
+            }
+            validateFormat(key, format, minLength, maxLength);
+
+            ApplicationIdentifierTable.Entry existing = table.get(key);
+            if (existing != null && existing.identifier != null) {
+                throw new IllegalArgumentException("AI " + key + " is defined in ApplicationIdentifier");
+            }
+            if (!table.put(new ApplicationIdentifierTable.Entry(key, null, format, minLength, maxLength, null, decoder))) {
+                throw new IllegalArgumentException("AI " + key + " conflicts with another AI");
+            }
+            keys.add(key);
+            return this;
+        }
+
+        /**
+         * Returns the definitions, the builder can continue to be used without affecting the instance returned.
+         */
+        public CustomApplicationIdentifiers build() {
+            return new CustomApplicationIdentifiers(table.copy(), new LinkedHashSet<String>(keys));
+        }
+
+        private static void validateFormat(String key, ApplicationIdentifier.Format format, int minLength, int maxLength) {
+            if (minLength < 1 || minLength > maxLength || maxLength > 90) {
+                throw new IllegalArgumentException("Invalid length " + minLength + ".." + maxLength + " for AI " + key);
+            }
+            switch (format) {
+                case NUMERIC_FIXED:
+                case ALPHANUMERIC_FIXED:
+                    if (minLength != maxLength) {
+                        throw new IllegalArgumentException("Invalid length " + minLength + ".." + maxLength + " for AI " + key + " of fixed length");
+                    }
+                    return;
+                case DATE:
+                    if (minLength != 6 || maxLength != 6) {
+                        throw new IllegalArgumentException("Invalid length " + minLength + ".." + maxLength + " for AI " + key + ", dates are six digits");
+                    }
+                    return;
+                case DECIMAL:
+                    if (key.length() != 3) {
+                        throw new IllegalArgumentException("Invalid AI " + key + ", AIs with a decimal point indicator have three digits");
+                    }
+                    return;
+                case CUSTOM:
+                    throw new IllegalArgumentException("Format CUSTOM is not supported for AI " + key);
+            }
+        }
+    }
+}
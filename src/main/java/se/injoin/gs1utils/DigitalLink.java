@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+/**
+ * Support for GS1 Digital Link URIs, such as https://id.gs1.org/01/09506000134352/10/ABC?17=201231.
+ * <p>
+ * Based on GS1 Digital Link Standard, Release 1.1.
+ */
+public final class DigitalLink {
+
+    private DigitalLink() {
+    }
+
+    /**
+     * Parses a GS1 Digital Link URI into the same parse result as {@link ElementStrings#parse(String)}. AIs are read
+     * from pairs of path segments, starting with the first segment that is an AI, and from query parameters, query
+     * parameters that are not AIs are ignored. Values are percent-decoded and validated in the same way as data
+     * fields in element strings. A GTIN given with 8, 12 or 13 digits is padded to 14 digits.
+     * <p>
+     * On error returns a partial parse result containing what could be successfully parsed. The position reported is
+     * the zero-based index in the URI of the AI.
+     */
+    public static ElementStrings.ParseResult parse(CharSequence uri) {
+
+        if (uri == null) {
+            throw new NullPointerException("URI must not be null");
+        }
+
+        ElementStrings.ParseResult result = new ElementStrings.ParseResult();
+        new UriReader(uri, result).read();
+        return result;
+    }
+
+    private static final class UriReader {
+
+        private final CharSequence uri;
+        private final int length;
+        private final ElementStrings.ParseResult result;
+        private final StringBuilder buffer = new StringBuilder();
+        private final ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+
+        private UriReader(CharSequence uri, ElementStrings.ParseResult result) {
+            this.uri = uri;
+            this.length = uri.length();
+            this.result = result;
+        }
+
+        private void read() {
+            int position = findPathStart();
+            if (position == -1) {
+                result.setError(ElementStrings.ParseError.INVALID_URI, 0, null, 0);
+                return;
+            }
+            int pathStart = position;
+
+            // Path segments before the first AI are a path prefix chosen by the resolver
+            boolean inPairs = false;
+            while (position < length && uri.charAt(position) == '/') {
+                int segmentStart = position + 1;
+                int segmentEnd = findEnd(segmentStart, false);
+                if (segmentStart == segmentEnd && (segmentEnd == length || uri.charAt(segmentEnd) != '/')) {
+                    // Trailing slash
+                    position = segmentEnd;
+                    break;
+                }
+                ApplicationIdentifierTable.Entry entry = ElementStrings.lookupWithDecimalPointIndicator(uri, segmentStart, segmentEnd);
+                if (entry == null) {
+                    if (inPairs) {
+                        result.setError(ElementStrings.ParseError.UNRECOGNIZED_AI, 0, null, segmentStart);
+                        return;
+                    }
+                    position = segmentEnd;
+                    continue;
+                }
+                inPairs = true;
+                if (segmentEnd == length || uri.charAt(segmentEnd) != '/') {
+                    result.setError(ElementStrings.ParseError.INVALID_URI, 0, null, segmentStart);
+                    return;
+                }
+                int valueStart = segmentEnd + 1;
+                int valueEnd = findEnd(valueStart, false);
+                if (!readElement(entry, segmentStart, segmentEnd, valueStart, valueEnd)) {
+                    return;
+                }
+                position = valueEnd;
+            }
+            if (!inPairs) {
+                result.setError(ElementStrings.ParseError.INVALID_URI, 0, null, pathStart);
+                return;
+            }
+
+            if (position < length && uri.charAt(position) == '?') {
+                position++;
+                while (position < length && uri.charAt(position) != '#') {
+                    int keyStart = position;
+                    int keyEnd = keyStart;
+                    while (keyEnd < length && uri.charAt(keyEnd) != '=' && uri.charAt(keyEnd) != '&' && uri.charAt(keyEnd) != '#') {
+                        keyEnd++;
+                    }
+                    int valueStart = keyEnd < length && uri.charAt(keyEnd) == '=' ? keyEnd + 1 : keyEnd;
+                    int valueEnd = findEnd(valueStart, true);
+                    if (Internals.isDigits(uri, keyStart, keyEnd)) {
+                        ApplicationIdentifierTable.Entry entry = ElementStrings.lookupWithDecimalPointIndicator(uri, keyStart, keyEnd);
+                        if (entry == null) {
+                            result.setError(ElementStrings.ParseError.UNRECOGNIZED_AI, 0, null, keyStart);
+                            return;
+                        }
+                        if (!readElement(entry, keyStart, keyEnd, valueStart, valueEnd)) {
+                            return;
+                        }
+                    }
+                    position = valueEnd < length && uri.charAt(valueEnd) == '&' ? valueEnd + 1 : valueEnd;
+                }
+            }
+        }
+
+        /**
+         * Returns the index of the slash starting the path after the scheme and authority, or -1 if there is none.
+         */
+        private int findPathStart() {
+            int i = 0;
+            while (i < length && isSchemeCharacter(uri.charAt(i))) {
+                i++;
+            }
+            if (i == 0 || i + 3 > length || uri.charAt(i) != ':' || uri.charAt(i + 1) != '/' || uri.charAt(i + 2) != '/') {
+                return -1;
+            }
+            for (i += 3; i < length; i++) {
+                char c = uri.charAt(i);
+                if (c == '/') {
+                    return i;
+                }
+                if (c == '?' || c == '#') {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isSchemeCharacter(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.';
+        }
+
+        private int findEnd(int position, boolean inQuery) {
+            while (position < length) {
+                char c = uri.charAt(position);
+                if (c == '#' || (inQuery ? c == '&' : c == '/' || c == '?')) {
+                    break;
+                }
+                position++;
+            }
+            return position;
+        }
+
+        private boolean readElement(ApplicationIdentifierTable.Entry entry, int keyPosition, int keyEnd, int valueStart, int valueEnd) {
+            buffer.setLength(0);
+            if (keyEnd - keyPosition > entry.key.length()) {
+                buffer.append(uri.charAt(keyEnd - 1));
+            }
+            if (!percentDecode(valueStart, valueEnd)) {
+                result.setError(ElementStrings.ParseError.INVALID_PERCENT_ENCODING, 0, entry.key, keyPosition);
+                return false;
+            }
+            // Percent-encoded control characters such as the separator would otherwise end the data field early
+            int invalid = ElementStrings.indexOfInvalidCharacter(buffer, 0, buffer.length());
+            if (invalid != -1) {
+                result.setError(ElementStrings.ParseError.INVALID_CHARACTER, invalid, entry.key, keyPosition);
+                return false;
+            }
+            if (entry.identifier == ApplicationIdentifier.GTIN) {
+                int gtinLength = buffer.length();
+                if ((gtinLength == 8 || gtinLength == 12 || gtinLength == 13) && Internals.isDigits(buffer, 0, gtinLength)) {
+                    buffer.insert(0, "000000", 0, 14 - gtinLength);
+                }
+            }
+            reader.reset(buffer, 0, buffer.length());
+            int dataFieldEnd = ElementStrings.readDataField(entry, reader);
+            if (dataFieldEnd == -1) {
+                result.setError(reader.getError(), reader.getErrorLength(), entry.key, keyPosition);
+                return false;
+            }
+            if (reader.remainingLength() != 0) {
+                result.setError(ElementStrings.ParseError.DATA_FIELD_TOO_LONG, ElementStrings.getMaxDataFieldLength(entry), entry.key, keyPosition);
+                return false;
+            }
+            result.put(entry, ElementStrings.decodeDataField(entry, reader, 0, dataFieldEnd));
+            return true;
+        }
+
+        /**
+         * Percent-decodes a range of the URI appending to the buffer. Returns false if the encoding is invalid or decodes
+         * to characters outside of ASCII.
+         */
+        private boolean percentDecode(int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = uri.charAt(i);
+                if (c == '%') {
+                    if (i + 2 >= end) {
+                        return false;
+                    }
+                    int high = Character.digit(uri.charAt(i + 1), 16);
+                    int low = Character.digit(uri.charAt(i + 2), 16);
+                    if (high == -1 || low == -1 || high > 7) {
+                        return false;
+                    }
+                    c = (char) (high * 16 + low);
+                    i += 2;
+                }
+                buffer.append(c);
+            }
+            return true;
+        }
+    }
+}
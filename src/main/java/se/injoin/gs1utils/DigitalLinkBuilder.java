@@ -0,0 +1,264 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+/**
+ * Builds GS1 Digital Link URIs from AIs and values. Each value is validated against the format of its AI when added.
+ * The primary key is written first in the path followed by its key qualifiers in the order defined by the standard,
+ * all other AIs are written as query parameters in the order they were added. Values are percent-encoded except for
+ * unreserved characters.
+ * <p>
+ * The builder can be reused after calling {@link #reset()}. Instances are not thread-safe.
+ * <p>
+ * Based on GS1 Digital Link Standard, Release 1.1.
+ */
+public final class DigitalLinkBuilder {
+
+    /**
+     * The base URI of the GS1 resolver, used by {@link #toString()}.
+     */
+    public static final String CANONICAL_BASE_URI = "https://id.gs1.org";
+
+    // Primary keys each followed by their key qualifiers in path order
+    private static final String[][] PRIMARY_KEYS = {
+            {"01", "10", "21"},
+            {"00"},
+            {"253"},
+            {"255"},
+            {"401"},
+            {"402"},
+            {"414", "254"},
+            {"415", "8020"},
+            {"8003"},
+            {"8004"},
+            {"8006", "10", "21"},
+            {"8010", "8011"},
+            {"8017", "8019"},
+            {"8018", "8019"}
+    };
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final StringBuilder values = new StringBuilder();
+    private final ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+    private ApplicationIdentifierTable.Entry[] entries = new ApplicationIdentifierTable.Entry[8];
+    private int[] valueEnds = new int[8];
+    private boolean[] written = new boolean[8];
+    private int size;
+
+    /**
+     * Adds an element. For AIs with a decimal point indicator the value starts with the indicator, in the URI the
+     * indicator is written as the last digit of the AI.
+     *
+     * @throws IllegalArgumentException if the value is invalid for the AI or the AI has already been added
+     */
+    public DigitalLinkBuilder add(ApplicationIdentifier identifier, CharSequence value) {
+        if (identifier == null) {
+            throw new NullPointerException("Identifier must not be null");
+        }
+        return add(ApplicationIdentifierTable.STANDARD.get(identifier.getKey()), value);
+    }
+
+    /**
+     * Adds an element by the key of its AI, also supports AIs not defined in {@link ApplicationIdentifier} such as
+     * 7030 and 91.
+     *
+     * @throws IllegalArgumentException if the AI is not recognized, the value is invalid for the AI or the AI has
+     *                                  already been added
+     */
+    public DigitalLinkBuilder add(String key, CharSequence value) {
+
+        if (key == null) {
+            throw new NullPointerException("Key must not be null");
+        }
+
+        ApplicationIdentifierTable.Entry entry = ApplicationIdentifierTable.STANDARD.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unrecognized AI " + key);
+        }
+        return add(entry, value);
+    }
+
+    /**
+     * Appends the URI to a string builder. A trailing slash on the base URI is ignored.
+     *
+     * @throws IllegalStateException if there is not exactly one primary key
+     */
+    public StringBuilder appendTo(StringBuilder uri, CharSequence baseUri) {
+
+        if (baseUri == null) {
+            throw new NullPointerException("Base URI must not be null");
+        }
+
+        String[] primaryKey = null;
+        int primaryIndex = -1;
+        for (int i = 0; i < size; i++) {
+            String[] keys = findPrimaryKey(entries[i].key);
+            if (keys != null) {
+                if (primaryKey != null) {
+                    throw new IllegalStateException("Multiple primary keys " + primaryKey[0] + " and " + keys[0]);
+                }
+                primaryKey = keys;
+                primaryIndex = i;
+            }
+        }
+        if (primaryKey == null) {
+            throw new IllegalStateException("No primary key");
+        }
+
+        int baseLength = baseUri.length();
+        if (baseLength != 0 && baseUri.charAt(baseLength - 1) == '/') {
+            baseLength--;
+        }
+        uri.append(baseUri, 0, baseLength);
+
+        for (int i = 0; i < size; i++) {
+            written[i] = false;
+        }
+        appendPathSegments(uri, primaryIndex);
+        for (int k = 1; k < primaryKey.length; k++) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i].key.equals(primaryKey[k])) {
+                    appendPathSegments(uri, i);
+                }
+            }
+        }
+
+        char delimiter = '?';
+        for (int i = 0; i < size; i++) {
+            if (!written[i]) {
+                uri.append(delimiter);
+                int valueStart = appendKey(uri, i);
+                uri.append('=');
+                appendPercentEncoded(uri, valueStart, valueEnds[i]);
+                delimiter = '&';
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * Returns the URI using a custom base URI, such as https://example.com or https://example.com/some/path.
+     *
+     * @throws IllegalStateException if there is not exactly one primary key
+     */
+    public String toString(CharSequence baseUri) {
+        return appendTo(new StringBuilder(), baseUri).toString();
+    }
+
+    /**
+     * Returns the URI using the {@link #CANONICAL_BASE_URI canonical base URI}.
+     *
+     * @throws IllegalStateException if there is not exactly one primary key
+     */
+    public String toString() {
+        return toString(CANONICAL_BASE_URI);
+    }
+
+    /**
+     * Clears the builder so that it can be reused.
+     */
+    public DigitalLinkBuilder reset() {
+        values.setLength(0);
+        for (int i = 0; i < size; i++) {
+            entries[i] = null;
+        }
+        size = 0;
+        return this;
+    }
+
+    private DigitalLinkBuilder add(ApplicationIdentifierTable.Entry entry, CharSequence value) {
+
+        if (value == null) {
+            throw new NullPointerException("Value must not be null");
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (entries[i] == entry) {
+                throw new IllegalArgumentException("Duplicate AI " + entry.key);
+            }
+        }
+
+        int start = values.length();
+        values.append(value);
+        String error = ElementStrings.validateDataField(entry, reader, values, start, values.length());
+        if (error != null) {
+            values.setLength(start);
+            throw new IllegalArgumentException("Invalid data field for AI " + entry.key + ", " + error);
+        }
+
+        if (size == entries.length) {
+            ApplicationIdentifierTable.Entry[] newEntries = new ApplicationIdentifierTable.Entry[size * 2];
+            System.arraycopy(entries, 0, newEntries, 0, size);
+            entries = newEntries;
+            int[] newValueEnds = new int[size * 2];
+            System.arraycopy(valueEnds, 0, newValueEnds, 0, size);
+            valueEnds = newValueEnds;
+            written = new boolean[size * 2];
+        }
+        entries[size] = entry;
+        valueEnds[size] = values.length();
+        size++;
+        return this;
+    }
+
+    private void appendPathSegments(StringBuilder uri, int index) {
+        uri.append('/');
+        int valueStart = appendKey(uri, index);
+        uri.append('/');
+        appendPercentEncoded(uri, valueStart, valueEnds[index]);
+        written[index] = true;
+    }
+
+    /**
+     * Appends the key of an element including its decimal point indicator if it has one, returns the index where the
+     * rest of the value starts.
+     */
+    private int appendKey(StringBuilder uri, int index) {
+        ApplicationIdentifierTable.Entry entry = entries[index];
+        int valueStart = index == 0 ? 0 : valueEnds[index - 1];
+        uri.append(entry.key);
+        if (ElementStrings.hasDecimalPointIndicator(entry)) {
+            uri.append(values.charAt(valueStart));
+            valueStart++;
+        }
+        return valueStart;
+    }
+
+    private void appendPercentEncoded(StringBuilder uri, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = values.charAt(i);
+            if (isUnreserved(c)) {
+                uri.append(c);
+            } else {
+                uri.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static String[] findPrimaryKey(String key) {
+        for (String[] keys : PRIMARY_KEYS) {
+            if (keys[0].equals(key)) {
+                return keys;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+/**
+ * Builds element strings from AIs and values. Each data field is validated against the format of its AI when added.
+ * A separator character (FNC1) is inserted after data fields of AIs that do not have a predefined length, unless the
+ * data field is the last one.
+ * <p>
+ * The builder can be reused after calling {@link #reset()}. Instances are not thread-safe.
+ * <p>
+ * Based on GS1 General Specifications, Release 17.0.1, section 7.8.5.
+ */
+public final class ElementStringBuilder {
+
+    private static final char SEPARATOR_CHAR = 0x1D;
+
+    // Two digit prefixes of AIs with a predefined length, these are not followed by a separator
+    private static final boolean[] PREDEFINED_LENGTH = new boolean[100];
+
+    static {
+        int[] prefixes = {0, 1, 2, 3, 4, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 31, 32, 33, 34, 35, 36, 41};
+        for (int prefix : prefixes) {
+            PREDEFINED_LENGTH[prefix] = true;
+        }
+    }
+
+    private final StringBuilder chars = new StringBuilder();
+    private final ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+    private boolean separatorPending = false;
+
+    /**
+     * Adds an element. For AIs with a decimal point indicator the value starts with the indicator.
+     *
+     * @throws IllegalArgumentException if the value is invalid for the AI
+     */
+    public ElementStringBuilder add(ApplicationIdentifier identifier, CharSequence value) {
+        return add(getEntry(identifier), value);
+    }
+
+    /**
+     * Adds an element by the key of its AI, also supports AIs not defined in {@link ApplicationIdentifier} such as
+     * 7030 and 91.
+     *
+     * @throws IllegalArgumentException if the AI is not recognized or the value is invalid for the AI
+     */
+    public ElementStringBuilder add(String key, CharSequence value) {
+
+        if (key == null) {
+            throw new NullPointerException("Key must not be null");
+        }
+
+        ApplicationIdentifierTable.Entry entry = ApplicationIdentifierTable.STANDARD.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unrecognized AI " + key);
+        }
+        return add(entry, value);
+    }
+
+    /**
+     * Adds a date for an AI with a date data field, such as {@link ApplicationIdentifier#BEST_BEFORE_DATE}. A day of
+     * zero means the last day of the month.
+     *
+     * @throws IllegalArgumentException if the AI is not a date or the date is invalid or can not be written with a
+     *                                  two digit year
+     */
+    public ElementStringBuilder addDate(ApplicationIdentifier identifier, int year, int month, int day) {
+        ApplicationIdentifierTable.Entry entry = getEntry(identifier);
+        if (entry.format != ApplicationIdentifier.Format.DATE) {
+            throw new IllegalArgumentException("AI " + entry.key + " is not a date");
+        }
+        if (year < 0 || reader.resolveTwoDigitYear(year % 100, ElementStrings.SequenceReader.getCurrentYear()) != year) {
+            throw new IllegalArgumentException("Invalid data field for AI " + entry.key + ", year " + year + " can not be written with two digits");
+        }
+        int start = begin(entry);
+        appendTwoDigits(entry, start, year % 100);
+        appendTwoDigits(entry, start, month);
+        appendTwoDigits(entry, start, day);
+        return end(entry, start);
+    }
+
+    /**
+     * Adds a date given as the number of days from 1970-01-01.
+     *
+     * @see #addDate(ApplicationIdentifier, int, int, int)
+     */
+    public ElementStringBuilder addDate(ApplicationIdentifier identifier, long epochDay) {
+        long date = Internals.toCivilDate(epochDay);
+        long year = date / 10000;
+        if (year < 0 || year > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid data field for AI " + identifier.getKey() + ", epoch day " + epochDay + " out of range");
+        }
+        return addDate(identifier, (int) year, (int) (date / 100 % 100), (int) (date % 100));
+    }
+
+    /**
+     * Adds a decimal given as an unscaled value and the number of decimals, for an AI with a decimal data field such
+     * as {@link ApplicationIdentifier#ITEM_NET_WEIGHT_KG}. The value is padded with zeroes for AIs of fixed length.
+     *
+     * @throws IllegalArgumentException if the AI is not a decimal or the value does not fit in the data field
+     */
+    public ElementStringBuilder addDecimal(ApplicationIdentifier identifier, long unscaledValue, int scale) {
+        ApplicationIdentifierTable.Entry entry = getEntry(identifier);
+        if (entry.format != ApplicationIdentifier.Format.DECIMAL) {
+            throw new IllegalArgumentException("AI " + entry.key + " is not a decimal");
+        }
+        if (scale < 0 || scale > 9) {
+            throw new IllegalArgumentException("Invalid data field for AI " + entry.key + ", scale must be between 0 and 9");
+        }
+        if (unscaledValue < 0) {
+            throw new IllegalArgumentException("Invalid data field for AI " + entry.key + ", value must not be negative");
+        }
+        int start = begin(entry);
+        chars.append((char) ('0' + scale));
+        if (entry.minLength == entry.maxLength) {
+            for (int i = countDigits(unscaledValue); i < entry.maxLength; i++) {
+                chars.append('0');
+            }
+        }
+        chars.append(unscaledValue);
+        return end(entry, start);
+    }
+
+    /**
+     * Returns the number of characters in the element strings.
+     */
+    public int length() {
+        return chars.length();
+    }
+
+    /**
+     * Appends the element strings to a string builder.
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        return builder.append(chars);
+    }
+
+    /**
+     * Copies the element strings into a character array and returns the number of characters copied.
+     *
+     * @throws IndexOutOfBoundsException if the array is too small
+     */
+    public int getChars(char[] dst, int off) {
+        int length = chars.length();
+        Internals.checkRange(dst.length, off, length);
+        chars.getChars(0, length, dst, off);
+        return length;
+    }
+
+    /**
+     * Copies the element strings as ASCII into a byte array and returns the number of bytes copied.
+     *
+     * @throws IndexOutOfBoundsException if the array is too small
+     */
+    public int getAsciiBytes(byte[] dst, int off) {
+        int length = chars.length();
+        Internals.checkRange(dst.length, off, length);
+        for (int i = 0; i < length; i++) {
+            dst[off + i] = (byte) chars.charAt(i);
+        }
+        return length;
+    }
+
+    /**
+     * Clears the builder so that it can be reused.
+     */
+    public ElementStringBuilder reset() {
+        chars.setLength(0);
+        separatorPending = false;
+        return this;
+    }
+
+    public String toString() {
+        return chars.toString();
+    }
+
+    private ApplicationIdentifierTable.Entry getEntry(ApplicationIdentifier identifier) {
+        if (identifier == null) {
+            throw new NullPointerException("Identifier must not be null");
+        }
+        return ApplicationIdentifierTable.STANDARD.get(identifier.getKey());
+    }
+
+    private ElementStringBuilder add(ApplicationIdentifierTable.Entry entry, CharSequence value) {
+
+        if (value == null) {
+            throw new NullPointerException("Value must not be null");
+        }
+
+        int start = begin(entry);
+        chars.append(value);
+        return end(entry, start);
+    }
+
+    /**
+     * Writes the separator ending the previous data field if needed and the AI, returns the length before writing.
+     */
+    private int begin(ApplicationIdentifierTable.Entry entry) {
+        int start = chars.length();
+        if (separatorPending) {
+            chars.append(SEPARATOR_CHAR);
+        }
+        chars.append(entry.key);
+        return start;
+    }
+
+    /**
+     * Validates the data field written since begin, removing what was written if invalid.
+     */
+    private ElementStringBuilder end(ApplicationIdentifierTable.Entry entry, int start) {
+        int dataFieldStart = start + (separatorPending ? 1 : 0) + entry.key.length();
+        String error = ElementStrings.validateDataField(entry, reader, chars, dataFieldStart, chars.length());
+        if (error != null) {
+            chars.setLength(start);
+            throw new IllegalArgumentException("Invalid data field for AI " + entry.key + ", " + error);
+        }
+        separatorPending = !PREDEFINED_LENGTH[(entry.key.charAt(0) - '0') * 10 + (entry.key.charAt(1) - '0')];
+        return this;
+    }
+
+    private void appendTwoDigits(ApplicationIdentifierTable.Entry entry, int start, int value) {
+        if (value < 0 || value > 99) {
+            chars.setLength(start);
+            throw new IllegalArgumentException("Invalid data field for AI " + entry.key + ", invalid date");
+        }
+        chars.append((char) ('0' + value / 10));
+        chars.append((char) ('0' + value % 10));
+    }
+
+    private static int countDigits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
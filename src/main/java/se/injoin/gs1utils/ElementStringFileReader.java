@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file of newline delimited element strings, one per line, parsing each directly from the bytes of the file
+ * without creating strings. The file is memory mapped a region at a time so that files larger than 2 GB can be read.
+ * A carriage return before the newline is ignored, as are empty lines.
+ * <p>
+ * Reading can be resumed from a previous position by passing the value of {@link #getNextOffset()} to the
+ * constructor. Instances are not thread-safe and the parse result returned is reset by the next call to
+ * {@link #next()}.
+ */
+public final class ElementStringFileReader implements Closeable {
+
+    static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long fileLength;
+    private final int regionSize;
+    private final ElementStringParser parser = new ElementStringParser();
+
+    private MappedByteBuffer region;
+    private long regionOffset;
+    private long nextOffset;
+    private long recordOffset = -1;
+    private ElementStrings.ParseResult result;
+
+    public ElementStringFileReader(File file) throws IOException {
+        this(file, 0);
+    }
+
+    /**
+     * Opens a file for reading starting at an offset, which must be the start of a line.
+     */
+    public ElementStringFileReader(File file, long offset) throws IOException {
+        this(file, offset, DEFAULT_REGION_SIZE);
+    }
+
+    ElementStringFileReader(File file, long offset, int regionSize) throws IOException {
+
+        if (file == null) {
+            throw new NullPointerException("File must not be null");
+        }
+
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.fileLength = channel.size();
+        this.regionSize = regionSize;
+        if (offset < 0 || offset > fileLength) {
+            close();
+            throw new IllegalArgumentException("Offset " + offset + " out of bounds for file length " + fileLength);
+        }
+        this.nextOffset = offset;
+    }
+
+    public boolean isLazyDecoding() {
+        return parser.isLazyDecoding();
+    }
+
+    /**
+     * Enables lazy decoding of data fields.
+     *
+     * @see ElementStringParser#setLazyDecoding(boolean)
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        parser.setLazyDecoding(lazyDecoding);
+    }
+
+    /**
+     * Parses the next line. Returns false when the end of the file is reached.
+     *
+     * @throws IOException if the file can not be read or a line does not fit in a mapped region
+     */
+    public boolean next() throws IOException {
+        while (nextOffset < fileLength) {
+            long lineStart = nextOffset;
+            long lineEnd = findLineEnd(lineStart);
+            nextOffset = lineEnd < fileLength ? lineEnd + 1 : lineEnd;
+
+            int start = (int) (lineStart - regionOffset);
+            int end = (int) (lineEnd - regionOffset);
+            if (end > start && region.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end == start) {
+                continue;
+            }
+
+            region.limit(end).position(start);
+            result = parser.parseAscii(region);
+            region.clear();
+            recordOffset = lineStart;
+            return true;
+        }
+        result = null;
+        recordOffset = -1;
+        return false;
+    }
+
+    /**
+     * Returns the parse result of the current line.
+     */
+    public ElementStrings.ParseResult getResult() {
+        if (result == null) {
+            throw new IllegalStateException("No current line");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offset in the file of the current line, or -1 if there is no current line.
+     */
+    public long getRecordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * Returns the offset in the file of the line following the current line, reading can be resumed from here.
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public void close() throws IOException {
+        // The mapped region is released when garbage collected
+        region = null;
+        result = null;
+        file.close();
+    }
+
+    /**
+     * Returns the offset of the newline ending a line, or the file length for the last line without newline. The line
+     * is mapped in the current region when this returns.
+     */
+    private long findLineEnd(long lineStart) throws IOException {
+        if (region == null || lineStart < regionOffset || lineStart >= regionOffset + region.capacity()) {
+            map(lineStart);
+        }
+        while (true) {
+            int regionEnd = region.capacity();
+            for (int i = (int) (lineStart - regionOffset); i < regionEnd; i++) {
+                if (region.get(i) == '\n') {
+                    return regionOffset + i;
+                }
+            }
+            if (regionOffset + regionEnd == fileLength) {
+                return fileLength;
+            }
+            if (regionOffset == lineStart) {
+                throw new IOException("Line at offset " + lineStart + " is longer than " + regionSize + " bytes");
+            }
+            // The line continues past the region, map a new region starting with the line
+            map(lineStart);
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        long size = Math.min(regionSize, fileLength - offset);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        regionOffset = offset;
+    }
+}
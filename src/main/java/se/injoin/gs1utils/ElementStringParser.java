@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Reusable parser for GS1 element strings. Parses the same way as {@link ElementStrings#parse(String)} but reuses its
+ * internal state and parse result between calls, which makes it suitable for keeping per thread or in a pool when
+ * parsing large volumes.
+ * <p>
+ * Instances are not thread-safe. The parse result returned is owned by the parser and is reset by the next call to
+ * parse, use {@link #parse(CharSequence, ElementStrings.ParseResult)} to parse into a result owned by the caller.
+ */
+public final class ElementStringParser {
+
+    private final ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+    private final ElementStrings.ParseResult result = new ElementStrings.ParseResult();
+
+    private boolean lazyDecoding = false;
+    private boolean collectAllErrors = false;
+    private SyntaxDictionary syntaxDictionary = null;
+    private CustomApplicationIdentifiers customApplicationIdentifiers = null;
+    private ApplicationIdentifierTable table = ApplicationIdentifierTable.STANDARD;
+
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Enables lazy decoding of data fields. Data fields are still fully validated while parsing, including dates, but
+     * conversion to dates, decimals and lists is deferred to when a value is first requested from the result. This
+     * saves the conversion for callers that only look at some of the elements.
+     * <p>
+     * With lazy decoding the parse result keeps a reference to the parsed sequence until all values are decoded or the
+     * result is reset, the sequence must not be modified while the result is in use.
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    public boolean isCollectAllErrors() {
+        return collectAllErrors;
+    }
+
+    /**
+     * Enables parsing past invalid elements. After an error parsing continues after the next separator character, or
+     * after the end of a data field of fixed length, so that valid elements following an invalid one are still
+     * included in the result. All errors are available from {@link ElementStrings.ParseResult#getErrorCount()} and the
+     * indexed error accessors, the first error is also the error of the result.
+     */
+    public void setCollectAllErrors(boolean collectAllErrors) {
+        this.collectAllErrors = collectAllErrors;
+    }
+
+    public boolean isCheckDigitVerification() {
+        return reader.isCheckDigitVerification();
+    }
+
+    /**
+     * Enables verification of the check digits of SSCCs, GTINs and GLNs, in AIs 00, 01, 02 and 410 to 416, while their
+     * data fields are read. Parsing stops with {@link ElementStrings.ParseError#INVALID_CHECK_DIGIT} at the first data
+     * field with an incorrect check digit.
+     */
+    public void setCheckDigitVerification(boolean checkDigitVerification) {
+        reader.setCheckDigitVerification(checkDigitVerification);
+    }
+
+    public SyntaxDictionary getSyntaxDictionary() {
+        return syntaxDictionary;
+    }
+
+    /**
+     * Sets a syntax dictionary defining AIs in addition to those in {@link ApplicationIdentifier}, or null to only
+     * recognize those. Ignored while custom AIs are set, to use both create the custom AIs from the dictionary.
+     */
+    public void setSyntaxDictionary(SyntaxDictionary syntaxDictionary) {
+        this.syntaxDictionary = syntaxDictionary;
+        updateTable();
+    }
+
+    public CustomApplicationIdentifiers getCustomApplicationIdentifiers() {
+        return customApplicationIdentifiers;
+    }
+
+    /**
+     * Sets definitions of custom AIs, or null to not recognize any custom AIs.
+     */
+    public void setCustomApplicationIdentifiers(CustomApplicationIdentifiers customApplicationIdentifiers) {
+        this.customApplicationIdentifiers = customApplicationIdentifiers;
+        updateTable();
+    }
+
+    /**
+     * Parses an element strings into the result owned by this parser.
+     *
+     * @see ElementStrings#parse(String)
+     */
+    public ElementStrings.ParseResult parse(CharSequence sequence) {
+        return parse(sequence, result);
+    }
+
+    /**
+     * Parses an element strings into a result provided by the caller. The result is reset before parsing.
+     *
+     * @see ElementStrings#parse(String)
+     */
+    public ElementStrings.ParseResult parse(CharSequence sequence, ElementStrings.ParseResult result) {
+
+        if (sequence == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        if (result == null) {
+            throw new NullPointerException("Result must not be null");
+        }
+
+        return parse(sequence, 0, sequence.length(), result);
+    }
+
+    /**
+     * Parses an element strings held in a range of a character array into the result owned by this parser.
+     *
+     * @see ElementStrings#parse(char[], int, int)
+     */
+    public ElementStrings.ParseResult parse(char[] buf, int off, int len) {
+
+        if (buf == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        Internals.checkRange(buf.length, off, len);
+
+        return parse(CharBuffer.wrap(buf), off, off + len, result);
+    }
+
+    /**
+     * Parses an element strings held as ASCII in a range of a byte array into the result owned by this parser.
+     *
+     * @see ElementStrings#parseAscii(byte[], int, int)
+     */
+    public ElementStrings.ParseResult parseAscii(byte[] buf, int off, int len) {
+
+        if (buf == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        Internals.checkRange(buf.length, off, len);
+
+        return parse(new AsciiSequence(buf), off, off + len, result);
+    }
+
+    /**
+     * Parses an element strings held as ASCII in the remaining bytes of a buffer into the result owned by this parser.
+     *
+     * @see ElementStrings#parseAscii(ByteBuffer)
+     */
+    public ElementStrings.ParseResult parseAscii(ByteBuffer buffer) {
+
+        if (buffer == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+
+        return parse(new AsciiSequence(buffer), buffer.position(), buffer.limit(), result);
+    }
+
+    /**
+     * Parses an element strings reporting each element to a handler.
+     *
+     * @see ElementStrings#parse(CharSequence, ElementStrings.ElementHandler)
+     */
+    public void parse(CharSequence sequence, ElementStrings.ElementHandler handler) {
+
+        if (sequence == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        if (handler == null) {
+            throw new NullPointerException("Handler must not be null");
+        }
+
+        reader.reset(sequence, 0, sequence.length());
+        try {
+            ElementStrings.parse(reader, table, handler);
+        } finally {
+            reader.reset("", 0, 0);
+        }
+    }
+
+    private ElementStrings.ParseResult parse(CharSequence sequence, int start, int end, ElementStrings.ParseResult result) {
+        result.reset();
+        reader.reset(sequence, start, end);
+        try {
+            ElementStrings.parse(reader, table, result, lazyDecoding, collectAllErrors);
+        } finally {
+            // Do not keep a reference to the caller's sequence
+            reader.reset("", 0, 0);
+        }
+        return result;
+    }
+
+    private void updateTable() {
+        if (customApplicationIdentifiers != null) {
+            table = customApplicationIdentifiers.getTable();
+        } else if (syntaxDictionary != null) {
+            table = syntaxDictionary.getTable();
+        } else {
+            table = ApplicationIdentifierTable.STANDARD;
+        }
+    }
+}
@@ -16,437 +16,1967 @@
 package se.injoin.gs1utils;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Parses GS1 element strings as found in data carriers such as GS1-128.
  */
 public class ElementStrings {
 
+    // Chunks per processor for parallel parsing, more than one to even out chunks that take longer
+    private static final int PARALLEL_CHUNKS_PER_PROCESSOR = 4;
+    private static final int PARALLEL_MIN_CHUNK_SIZE = 256;
+
     public static class ParseResult {
 
+        /**
+         * Returned by the epoch day and epoch second accessors when the element is not present.
+         */
+        public static final long NO_DATE = Long.MIN_VALUE;
+
+        /**
+         * Returned by the unscaled decimal accessors when the element is not present.
+         */
+        public static final long NO_DECIMAL = Long.MIN_VALUE;
+
         private boolean partial = false;
+        private ParseError error = null;
+        private int errorLength = 0;
+        private String errorKey = null;
+        private int errorPosition = -1;
         private String errorMessage = null;
+        private SymbologyIdentifier symbologyIdentifier = null;
+
+        // All errors in the order found, kept in arrays rather than as objects since most results have none
+        private ParseError[] errors = new ParseError[0];
+        private int[] errorLengths = new int[0];
+        private String[] errorKeys = new String[0];
+        private int[] errorPositions = new int[0];
+        private String[] errorMessages = new String[0];
+        private int errorCount = 0;
 
-        private Map<String, Object> elementsByString = new LinkedHashMap<String, Object>();
-        private Map<ApplicationIdentifier, Object> elementsByEnum = new LinkedHashMap<ApplicationIdentifier, Object>();
+        // Elements in the order parsed, kept in arrays rather than maps since a result typically has few elements
+        private ApplicationIdentifierTable.Entry[] entries = new ApplicationIdentifierTable.Entry[8];
+        private Object[] values = new Object[8];
+        private int size = 0;
+
+        // AIs present as a bitset by ordinal and the first AI that was repeated, for validating associations
+        private final long[] present = new long[AssociationRules.WORDS];
+        private String duplicateKey = null;
+
+        // Map views built when first requested
+        private Map<String, Object> elementsByString = null;
+        private Map<ApplicationIdentifier, Object> elementsByEnum = null;
+
+        // Sequence parsed with lazy decoding and the number of data fields in it not yet decoded
+        private CharSequence sequence = null;
+        private int undecodedCount = 0;
 
         public boolean contains(String key) {
-            return elementsByString.containsKey(key);
+            return indexOf(key) != -1;
         }
 
         public boolean contains(ApplicationIdentifier identifier) {
-            return elementsByEnum.containsKey(identifier);
+            return identifier != null && AssociationRules.isSet(present, identifier);
         }
 
         public String getString(ApplicationIdentifier identifier) {
-            return (String) elementsByEnum.get(identifier);
+            return (String) get(identifier);
         }
 
         public String getString(String key) {
-            return (String) elementsByString.get(key);
+            return (String) get(key);
         }
 
         public Date getDate(ApplicationIdentifier identifier) {
-            return (Date) elementsByEnum.get(identifier);
+            return (Date) get(identifier);
         }
 
         public Date getDate(String key) {
-            return (Date) elementsByString.get(key);
+            return (Date) get(key);
         }
 
         public BigDecimal getDecimal(ApplicationIdentifier identifier) {
-            return (BigDecimal) elementsByEnum.get(identifier);
+            return (BigDecimal) get(identifier);
         }
 
         public BigDecimal getDecimal(String key) {
-            return (BigDecimal) elementsByString.get(key);
+            return (BigDecimal) get(key);
+        }
+
+        /**
+         * Returns a date as the number of days from 1970-01-01, or {@link #NO_DATE} if not present. The day is the date
+         * as written in the element strings, unaffected by time zone. For AI 7007, a date or a range of dates, this is
+         * the first date. With lazy decoding the value is computed without decoding the date.
+         */
+        public long getEpochDay(ApplicationIdentifier identifier) {
+            return toEpochDay(valueOf(identifier));
+        }
+
+        public long getEpochDay(String key) {
+            return toEpochDay(valueOf(key));
+        }
+
+        /**
+         * Returns a date and time as the number of seconds from 1970-01-01T00:00:00Z, or {@link #NO_DATE} if not
+         * present. The same instant as returned by getDate, for AI 7007 the first date. With lazy decoding computed
+         * without decoding the date.
+         */
+        public long getEpochSecond(ApplicationIdentifier identifier) {
+            return toEpochSecond(valueOf(identifier));
+        }
+
+        public long getEpochSecond(String key) {
+            return toEpochSecond(valueOf(key));
+        }
+
+        /**
+         * Returns the digits of a decimal as a long, or {@link #NO_DECIMAL} if not present. Together with the scale
+         * from {@link #getDecimalScale(ApplicationIdentifier)} this is the value returned by getDecimal. With lazy
+         * decoding the value is computed without creating a BigDecimal.
+         */
+        public long getUnscaledDecimal(ApplicationIdentifier identifier) {
+            return toUnscaledDecimal(valueOf(identifier));
+        }
+
+        public long getUnscaledDecimal(String key) {
+            return toUnscaledDecimal(valueOf(key));
+        }
+
+        /**
+         * Returns the number of decimals of a decimal as given by its decimal point indicator, or -1 if not present.
+         */
+        public int getDecimalScale(ApplicationIdentifier identifier) {
+            return toDecimalScale(valueOf(identifier));
+        }
+
+        public int getDecimalScale(String key) {
+            return toDecimalScale(valueOf(key));
         }
 
         public List getList(ApplicationIdentifier identifier) {
-            return (List) elementsByEnum.get(identifier);
+            return (List) get(identifier);
         }
 
         public List getList(String key) {
-            return (List) elementsByString.get(key);
+            return (List) get(key);
         }
 
         public Object getObject(String key) {
-            return elementsByString.get(key);
+            return get(key);
         }
 
         public Object getObject(ApplicationIdentifier identifier) {
-            return elementsByEnum.get(identifier);
+            return get(identifier);
         }
 
         public boolean isEmpty() {
-            return elementsByString.isEmpty();
+            return size == 0;
+        }
+
+        /**
+         * Returns the symbology identifier the element strings started with, or null if there was none.
+         */
+        public SymbologyIdentifier getSymbologyIdentifier() {
+            return symbologyIdentifier;
         }
 
         public boolean isPartial() {
             return partial;
         }
 
+        /**
+         * Returns the error that stopped parsing, or null if the element strings was parsed completely.
+         */
+        public ParseError getError() {
+            return error;
+        }
+
+        /**
+         * Returns the AI whose data field is invalid, or null if there is no error or the AI was not recognized.
+         */
+        public String getErrorKey() {
+            return errorKey;
+        }
+
+        /**
+         * Returns the position of the AI where parsing stopped, or -1 if there is no error or the error was found when
+         * validating associations.
+         */
+        public int getErrorPosition() {
+            return errorPosition;
+        }
+
         public String getErrorMessage() {
+            if (errorMessage == null && error != null) {
+                errorMessage = describeError(error, errorLength, errorKey, errorPosition);
+            }
             return errorMessage;
         }
 
-        public Map<String, Object> getElementsByString() {
-            return elementsByString;
+        /**
+         * Returns the number of errors. This is at most one unless parsing continued after errors, in which case the
+         * first error is also returned by {@link #getError()}.
+         *
+         * @see ElementStringParser#setCollectAllErrors(boolean)
+         */
+        public int getErrorCount() {
+            return errorCount;
         }
 
-        public Map<ApplicationIdentifier, Object> getElementsByEnum() {
-            return elementsByEnum;
+        /**
+         * Returns an error by its index in the order found.
+         *
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public ParseError getError(int index) {
+            checkErrorIndex(index);
+            return errors[index];
         }
-    }
-
-    /**
-     * Parses an element strings and returns a parse result. On error returns a partial parse result containing what
-     * could be successfully parsed and an error string describing what went wrong and at what position in the sequence
-     * the error occurred. The position reported is zero-based.
-     */
-    public static ParseResult parse(String sequence) {
 
-        if (sequence == null) {
-            throw new NullPointerException("Sequence must not be null");
+        /**
+         * Returns the AI whose data field is invalid for an error, or null if the AI was not recognized.
+         *
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public String getErrorKey(int index) {
+            checkErrorIndex(index);
+            return errorKeys[index];
         }
 
-        ParseResult result = new ParseResult();
-        SequenceReader reader = new SequenceReader(sequence);
+        /**
+         * Returns the position of the AI for an error, or -1 if the error was found when validating associations.
+         *
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public int getErrorPosition(int index) {
+            checkErrorIndex(index);
+            return errorPositions[index];
+        }
 
-        while (!(reader.remainingLength() == 0)) {
+        /**
+         * Returns the message for an error, the message is built when requested.
+         *
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public String getErrorMessage(int index) {
+            checkErrorIndex(index);
+            if (errorMessages[index] != null) {
+                return errorMessages[index];
+            }
+            return describeError(errors[index], errorLengths[index], errorKeys[index], errorPositions[index]);
+        }
 
-            int identifierPosition = reader.getPosition();
-            String key = null;
-            Object data = null;
-            ApplicationIdentifier identifier = null;
-
-            try {
-
-                // Standard AIs defined in ApplicationIdentifier
-                for (ApplicationIdentifier candidate : ApplicationIdentifier.values()) {
-                    if (reader.startsWith(candidate.getKey())) {
-                        identifier = candidate;
-                        key = reader.read(identifier.getKey().length());
-                        if (identifier.getFormat() == ApplicationIdentifier.Format.CUSTOM) {
-                            data = readDataFieldInCustomFormat(identifier, reader);
-                        } else {
-                            data = readDataFieldInStandardFormat(identifier, reader);
-                        }
-                        break;
-                    }
-                }
+        /**
+         * Validates the combination of AIs against the association rules of the GS1 General Specifications, such as AI
+         * 02 requiring AI 37 and AIs 01 and 02 not being allowed together, and that no AI is repeated. On failure the
+         * result is marked partial with the error, all elements remain available. Returns false if the combination is
+         * invalid or if the result already has an error.
+         */
+        public boolean validateAssociations() {
+            if (error != null) {
+                return false;
+            }
+            return AssociationRules.validate(this, present);
+        }
 
-                // Support for AIs 703s Number of processor with three-digit ISO country code
-                if (key == null && reader.remainingLength() >= 4 && reader.startsWith("703")) {
-                    String start = reader.peek(4);
-                    if (start.charAt(3) >= '0' && start.charAt(3) <= '9') {
-                        key = reader.read(4);
-                        data = Arrays.asList(reader.readFixedLengthNumeric(3), reader.readVariableLengthAlphanumeric(1, 27));
-                    }
+        /**
+         * Returns the elements by AI in the order parsed. The map is built when first requested and is unmodifiable,
+         * earlier versions returned a modifiable map. Callers that modify the map should copy it first, for instance
+         * into a new {@link LinkedHashMap}.
+         */
+        public Map<String, Object> getElementsByString() {
+            if (elementsByString == null) {
+                decodeAll();
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                for (int i = 0; i < size; i++) {
+                    map.put(entries[i].key, decode(values[i]));
                 }
+                elementsByString = Collections.unmodifiableMap(map);
+            }
+            return elementsByString;
+        }
 
-                // Support for AIs 710-719 National Healthcare Reimbursement Number (NHRN)
-                if (key == null && reader.remainingLength() >= 3 && reader.startsWith("71")) {
-                    String start = reader.peek(3);
-                    if (start.charAt(2) >= '0' && start.charAt(2) <= '9') {
-                        key = reader.read(3);
-                        data = reader.readVariableLengthAlphanumeric(1, 20);
+        /**
+         * Returns the elements by AI in the order parsed, excluding AIs without a constant in
+         * {@link ApplicationIdentifier}. The map is built when first requested and is unmodifiable, earlier versions
+         * returned a modifiable map.
+         *
+         * @see #getElementsByString()
+         */
+        public Map<ApplicationIdentifier, Object> getElementsByEnum() {
+            if (elementsByEnum == null) {
+                decodeAll();
+                Map<ApplicationIdentifier, Object> map = new LinkedHashMap<ApplicationIdentifier, Object>();
+                for (int i = 0; i < size; i++) {
+                    if (entries[i].identifier != null) {
+                        map.put(entries[i].identifier, decode(values[i]));
                     }
                 }
+                elementsByEnum = Collections.unmodifiableMap(map);
+            }
+            return elementsByEnum;
+        }
 
-                // Support for AIs 91-99 Company internal information
-                if (key == null && reader.remainingLength() >= 2 && reader.startsWith("9")) {
-                    String start = reader.peek(2);
-                    if (start.charAt(1) >= '1' && start.charAt(1) <= '9') {
-                        key = reader.read(2);
-                        data = reader.readVariableLengthAlphanumeric(1, 30);
-                    }
-                }
+        /**
+         * Returns an immutable snapshot of the result that can be shared between threads without copying. The result
+         * itself is not affected and can be reset and reused.
+         */
+        public ImmutableParseResult toImmutable() {
+            return new ImmutableParseResult(this);
+        }
 
-            } catch (Exception e) {
-                result.partial = true;
-                result.errorMessage = "Error parsing data field for AI " + key + " at position " + identifierPosition + ", " + e.getMessage();
-                break;
-            }
-            if (key == null) {
-                result.partial = true;
-                result.errorMessage = "Unrecognized AI at position " + identifierPosition;
-                break;
+        /**
+         * Clears the result so that it can be reused for parsing another element strings.
+         *
+         * @see ElementStringParser#parse(CharSequence, ParseResult)
+         */
+        public void reset() {
+            partial = false;
+            error = null;
+            errorLength = 0;
+            errorKey = null;
+            errorPosition = -1;
+            errorMessage = null;
+            symbologyIdentifier = null;
+            for (int i = 0; i < errorCount; i++) {
+                errors[i] = null;
+                errorKeys[i] = null;
+                errorMessages[i] = null;
             }
-            if (data == null) {
-                result.partial = true;
-                result.errorMessage = "Error parsing data field for AI " + key + " at position " + identifierPosition;
-                break;
+            errorCount = 0;
+            for (int i = 0; i < size; i++) {
+                entries[i] = null;
+                values[i] = null;
             }
-            result.elementsByString.put(key, data);
-            if (identifier != null) {
-                result.elementsByEnum.put(identifier, data);
+            size = 0;
+            for (int i = 0; i < present.length; i++) {
+                present[i] = 0;
             }
+            duplicateKey = null;
+            elementsByString = null;
+            elementsByEnum = null;
+            sequence = null;
+            undecodedCount = 0;
         }
 
-        return result;
-    }
+        /**
+         * Adds an error and marks the result partial, the first error added is the error of the result.
+         */
+        void setError(ParseError error, int errorLength, String errorKey, int errorPosition) {
+            addError(error, errorLength, errorKey, errorPosition, null);
+        }
 
-    private static Object readDataFieldInStandardFormat(ApplicationIdentifier identifier, SequenceReader reader) {
-        switch (identifier.getFormat()) {
-            case NUMERIC_FIXED:
-                return reader.readFixedLengthNumeric(identifier.getMaxLength());
-            case NUMERIC_VARIABLE:
-                return reader.readVariableLengthNumeric(identifier.getMinLength(), identifier.getMaxLength());
-            case ALPHANUMERIC_FIXED:
-                return reader.readFixedLengthAlphanumeric(identifier.getMaxLength());
-            case ALPHANUMERIC_VARIABLE:
-                return reader.readVariableLengthAlphanumeric(identifier.getMinLength(), identifier.getMaxLength());
-            case DECIMAL:
-                return reader.readDecimal(identifier.getMinLength(), identifier.getMaxLength());
-            case DATE:
-                return reader.readDate();
+        /**
+         * Sets an error found when validating associations, which is not at a position in the sequence.
+         */
+        void setAssociationError(ParseError error, String errorKey, String errorMessage) {
+            addError(error, 0, errorKey, -1, errorMessage);
         }
-        return null;
-    }
 
-    private static Object readDataFieldInCustomFormat(ApplicationIdentifier identifier, SequenceReader reader) {
-        switch (identifier) {
-            case AMOUNT_PAYABLE_WITH_CURRENCY:
-            case AMOUNT_PAYABLE_PER_SINGLE_ITEM_WITH_CURRENCY:
-                return reader.readCurrencyAndAmount();
-            case SHIP_TO_POSTAL_CODE_WITH_COUNTRY: {
-                String countryCode = reader.readNumericDataField(3, 3);
-                String postalCode = reader.readDataField(1, 9);
-                return Arrays.asList(countryCode, postalCode);
+        private void addError(ParseError error, int errorLength, String errorKey, int errorPosition, String errorMessage) {
+            if (this.error == null) {
+                this.partial = true;
+                this.error = error;
+                this.errorLength = errorLength;
+                this.errorKey = errorKey;
+                this.errorPosition = errorPosition;
+                this.errorMessage = errorMessage;
             }
-            case COUNTRY_OF_INITIAL_PROCESSING:
-            case COUNTRY_OF_DISASSEMBLY:
-                return reader.readCountryList();
-            case EXPIRATION_DATE_AND_TIME:
-                return reader.readDateAndTimeWithoutSeconds();
-            case HARVEST_DATE:
-                return reader.readDateOrDateRange();
-            case PRODUCTION_DATE_AND_TIME:
-                return reader.readDateAndTimeWithOptionalMinutesAndSeconds();
+            if (errorCount == errors.length) {
+                int capacity = Math.max(4, errorCount * 2);
+                ParseError[] newErrors = new ParseError[capacity];
+                System.arraycopy(errors, 0, newErrors, 0, errorCount);
+                errors = newErrors;
+                int[] newErrorLengths = new int[capacity];
+                System.arraycopy(errorLengths, 0, newErrorLengths, 0, errorCount);
+                errorLengths = newErrorLengths;
+                String[] newErrorKeys = new String[capacity];
+                System.arraycopy(errorKeys, 0, newErrorKeys, 0, errorCount);
+                errorKeys = newErrorKeys;
+                int[] newErrorPositions = new int[capacity];
+                System.arraycopy(errorPositions, 0, newErrorPositions, 0, errorCount);
+                errorPositions = newErrorPositions;
+                String[] newErrorMessages = new String[capacity];
+                System.arraycopy(errorMessages, 0, newErrorMessages, 0, errorCount);
+                errorMessages = newErrorMessages;
+            }
+            errors[errorCount] = error;
+            errorLengths[errorCount] = errorLength;
+            errorKeys[errorCount] = errorKey;
+            errorPositions[errorCount] = errorPosition;
+            errorMessages[errorCount] = errorMessage;
+            errorCount++;
         }
-        return null;
-    }
 
-    static class SequenceReader {
-
-        private static final char SEPARATOR_CHAR = 0x1D;
+        private void checkErrorIndex(int index) {
+            if (index < 0 || index >= errorCount) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of range for " + errorCount + " errors");
+            }
+        }
 
-        private String sequence;
-        private int position = 0;
+        private static String describeError(ParseError error, int errorLength, String errorKey, int errorPosition) {
+            if (errorKey == null) {
+                // Errors not concerning a data field, such as "Unrecognized AI at position 5"
+                String description = error.describe(errorLength);
+                return Character.toUpperCase(description.charAt(0)) + description.substring(1) + " at position " + errorPosition;
+            }
+            return "Error parsing data field for AI " + errorKey + " at position " + errorPosition + ", " + error.describe(errorLength);
+        }
 
-        SequenceReader(String sequence) {
-            this.sequence = sequence;
+        String getDuplicateKey() {
+            return duplicateKey;
         }
 
-        String readFixedLengthNumeric(int length) {
-            return readVariableLengthNumeric(length, length);
+        /**
+         * Adds an element, a repeated AI replaces the earlier value keeping its position. Returns the earlier value.
+         */
+        Object put(ApplicationIdentifierTable.Entry entry, Object data) {
+            elementsByString = null;
+            elementsByEnum = null;
+            int index = indexOf(entry.key);
+            if (index != -1) {
+                Object previous = values[index];
+                values[index] = data;
+                // Replacing an undecoded data field with its decoded value is not a repeated AI
+                if (duplicateKey == null && !(previous instanceof UndecodedDataField && !(data instanceof UndecodedDataField))) {
+                    duplicateKey = entry.key;
+                }
+                return previous;
+            }
+            if (entry.identifier != null) {
+                AssociationRules.set(present, entry.identifier);
+            }
+            if (size == entries.length) {
+                ApplicationIdentifierTable.Entry[] newEntries = new ApplicationIdentifierTable.Entry[size * 2];
+                Object[] newValues = new Object[size * 2];
+                System.arraycopy(entries, 0, newEntries, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                entries = newEntries;
+                values = newValues;
+            }
+            entries[size] = entry;
+            values[size] = data;
+            size++;
+            return null;
         }
 
-        String readVariableLengthNumeric(int minLength, int maxLength) {
-            String dataField = readNumericDataField(minLength, maxLength);
-            skipSeparatorIfPresent();
-            return dataField;
+        /**
+         * Decodes and adds an element. Values of custom AIs with a decoder are kept together with their data field.
+         */
+        void putDecoded(ApplicationIdentifierTable.Entry entry, SequenceReader reader, int dataFieldStart, int dataFieldEnd) {
+            if (entry.decoder != null) {
+                put(entry, new CustomDataField(entry, reader.decodeString(dataFieldStart, dataFieldEnd)));
+            } else {
+                put(entry, decodeDataField(entry, reader, dataFieldStart, dataFieldEnd));
+            }
         }
 
-        String readFixedLengthAlphanumeric(int length) {
-            return readVariableLengthAlphanumeric(length, length);
+        void putUndecoded(CharSequence sequence, ApplicationIdentifierTable.Entry entry, int dataFieldStart, int dataFieldEnd) {
+            this.sequence = sequence;
+            // A repeated AI replaces the earlier data field
+            if (!(put(entry, new UndecodedDataField(entry, dataFieldStart, dataFieldEnd)) instanceof UndecodedDataField)) {
+                undecodedCount++;
+            }
         }
 
-        String readVariableLengthAlphanumeric(int minLength, int maxLength) {
-            String dataField = readDataField(minLength, maxLength);
-            skipSeparatorIfPresent();
-            return dataField;
+        int getElementCount() {
+            return size;
         }
 
-        Date readDate() {
-            try {
-                return parseDateAndTime(readNumericDataField(6, 6));
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("data field must be numeric");
-            }
+        ApplicationIdentifierTable.Entry getEntry(int index) {
+            return entries[index];
         }
 
-        List readDateOrDateRange() {
-            String dataField = readNumericDataField(6, 12);
-            if (dataField.length() == 6) {
-                return Collections.singletonList(parseDateAndTime(dataField.substring(0, 6)));
-            } else if (dataField.length() == 12) {
-                Date first = parseDateAndTime(dataField.substring(0, 6));
-                Date second = parseDateAndTime(dataField.substring(6, 12));
-                return Arrays.asList(first, second);
+        /**
+         * Appends the data field of an element as written in element strings. Undecoded data fields are copied from the
+         * sequence, as are data fields of custom AIs with a decoder, decoded values are encoded again.
+         */
+        void appendDataField(int index, StringBuilder builder) {
+            Object value = values[index];
+            if (value instanceof UndecodedDataField) {
+                UndecodedDataField undecoded = (UndecodedDataField) value;
+                builder.append(sequence, undecoded.dataFieldStart, undecoded.dataFieldEnd);
+            } else if (value instanceof CustomDataField) {
+                builder.append(((CustomDataField) value).dataField);
+            } else {
+                ElementStrings.appendDataField(builder, entries[index], value);
             }
-            throw new IllegalArgumentException("invalid data field length");
         }
 
-        Date readDateAndTimeWithoutSeconds() {
-            try {
-                return parseDateAndTime(readNumericDataField(10, 10));
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("data field must be numeric");
+        private int indexOf(String key) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i].key.equals(key)) {
+                    return i;
+                }
             }
+            return -1;
         }
 
-        Date readDateAndTimeWithOptionalMinutesAndSeconds() {
-            try {
-                String dataField = readNumericDataField(8, 12);
-                if (dataField.length() != 8 && dataField.length() != 12) {
-                    throw new IllegalArgumentException("invalid data field length");
+        private int indexOf(ApplicationIdentifier identifier) {
+            if (identifier == null) {
+                return -1;
+            }
+            for (int i = 0; i < size; i++) {
+                if (entries[i].identifier == identifier) {
+                    return i;
                 }
-                return parseDateAndTime(dataField);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("data field must be numeric");
             }
+            return -1;
+        }
+
+        private Object valueOf(String key) {
+            int index = indexOf(key);
+            return index != -1 ? values[index] : null;
+        }
+
+        private Object valueOf(ApplicationIdentifier identifier) {
+            int index = indexOf(identifier);
+            return index != -1 ? values[index] : null;
+        }
+
+        private Object get(String key) {
+            return decode(valueOf(key));
         }
 
-        Date parseDateAndTime(String s) {
-            int year, month, day, hour, minutes, seconds;
-            try {
-                year = Integer.parseInt(s.substring(0, 2));
-                month = Integer.parseInt(s.substring(2, 4));
-                day = Integer.parseInt(s.substring(4, 6));
-                hour = s.length() >= 8 ? Integer.parseInt(s.substring(6, 8)) : 0;
-                minutes = s.length() >= 10 ? Integer.parseInt(s.substring(8, 10)) : 0;
-                seconds = s.length() >= 12 ? Integer.parseInt(s.substring(10, 12)) : 0;
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("data field must be numeric");
+        private Object get(ApplicationIdentifier identifier) {
+            return decode(valueOf(identifier));
+        }
+
+        private Object decode(Object value) {
+            if (value instanceof CustomDataField) {
+                return ((CustomDataField) value).value;
             }
-            try {
-                Calendar calendar = Calendar.getInstance();
-                year = resolveTwoDigitYear(year, calendar.get(Calendar.YEAR));
-                // When day is zero that means last day of the month
-                boolean lastOfMonth = day == 0;
-                day = day == 0 ? 1 : day;
-                calendar.clear();
-                calendar.setLenient(false);
-                calendar.set(year, month - 1, day, hour, minutes, seconds);
-                if (lastOfMonth) {
-                    calendar.add(Calendar.MONTH, 1);
-                    calendar.add(Calendar.DAY_OF_MONTH, -1);
-                }
-                return calendar.getTime();
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("invalid date");
+            if (!(value instanceof UndecodedDataField)) {
+                return value;
+            }
+            UndecodedDataField undecoded = (UndecodedDataField) value;
+            putDecoded(undecoded.entry, new SequenceReader(sequence), undecoded.dataFieldStart, undecoded.dataFieldEnd);
+            if (--undecodedCount == 0) {
+                sequence = null;
             }
+            return decode(valueOf(undecoded.entry.key));
         }
 
         /**
-         * Converts a two digit year to four digits using the algorithm in GS1 General specification section 7.12.
-         *
-         * @param year        two digit year
-         * @param currentYear four digit century and year
+         * Decodes a value according to the format of its AI, ignoring the decoder of a custom AI so that the epoch and
+         * decimal accessors return the same with and without lazy decoding.
          */
-        int resolveTwoDigitYear(int year, int currentYear) {
-            int century = currentYear - (currentYear % 100);
-            int difference = year - (currentYear % 100);
-            if (difference >= 51 && difference <= 99) {
-                century -= 100;
-            } else if (difference >= -99 && difference <= -50) {
-                century += 100;
+        private Object decodeInFormat(Object value) {
+            if (value instanceof CustomDataField) {
+                String dataField = ((CustomDataField) value).dataField;
+                return decodeDataFieldInFormat(((CustomDataField) value).entry, new SequenceReader(dataField), 0, dataField.length());
             }
-            return century + year;
+            if (value instanceof UndecodedDataField && ((UndecodedDataField) value).entry.decoder != null) {
+                UndecodedDataField undecoded = (UndecodedDataField) value;
+                return decodeDataFieldInFormat(undecoded.entry, new SequenceReader(sequence), undecoded.dataFieldStart, undecoded.dataFieldEnd);
+            }
+            return decode(value);
         }
 
-        BigDecimal readDecimal(int minLength, int maxLength) {
-            try {
-                int decimalPointPosition = readDecimalPointPosition();
-                String dataField = readNumericDataField(minLength, maxLength);
-                return new BigDecimal(dataField).movePointLeft(decimalPointPosition);
-            } catch (ArithmeticException e) {
-                throw new IllegalArgumentException("invalid decimal");
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("data field must be numeric");
+        private long toEpochDay(Object value) {
+            if (value == null) {
+                return NO_DATE;
+            }
+            int dateEnd = getUndecodedDateEnd(value);
+            if (dateEnd != -1) {
+                return new SequenceReader(sequence).decodeEpochDay(((UndecodedDataField) value).dataFieldStart, dateEnd);
             }
+            return ElementStrings.toEpochDay(toFirstDate(decodeInFormat(value)));
         }
 
-        int readDecimalPointPosition() {
-            char decimalPointIndicator = readChar();
-            if (decimalPointIndicator < '0' || decimalPointIndicator > '9') {
-                throw new IllegalArgumentException("decimal point indicator must be a digit");
+        private long toEpochSecond(Object value) {
+            if (value == null) {
+                return NO_DATE;
+            }
+            int dateEnd = getUndecodedDateEnd(value);
+            if (dateEnd != -1) {
+                return new SequenceReader(sequence).decodeEpochSecond(((UndecodedDataField) value).dataFieldStart, dateEnd);
             }
-            return decimalPointIndicator - '0';
+            return ElementStrings.toEpochSecond(toFirstDate(decodeInFormat(value)));
         }
 
-        List readCurrencyAndAmount() {
-            int decimalPointPosition = readDecimalPointPosition();
-            String currencyCode = readNumericDataField(3, 3);
-            String digits = readDataField(1, 15);
-            BigDecimal amount = new BigDecimal(digits).movePointLeft(decimalPointPosition);
-            return Arrays.asList(currencyCode, amount);
+        private long toUnscaledDecimal(Object value) {
+            if (value == null) {
+                return NO_DECIMAL;
+            }
+            if (isUndecodedDecimal(value)) {
+                UndecodedDataField undecoded = (UndecodedDataField) value;
+                return new SequenceReader(sequence).decodeUnscaledDecimal(undecoded.dataFieldStart + 1, undecoded.dataFieldEnd);
+            }
+            return ((BigDecimal) decodeInFormat(value)).unscaledValue().longValue();
         }
 
-        List readCountryList() {
-            String dataField = readNumericDataField(3, 15);
-            if (dataField.length() % 3 != 0) {
-                throw new IllegalArgumentException("invalid data field length");
+        private int toDecimalScale(Object value) {
+            if (value == null) {
+                return -1;
             }
-            ArrayList<String> list = new ArrayList<String>();
-            for (int i = 0; i < dataField.length(); i += 3) {
-                list.add(dataField.substring(i, i + 3));
+            if (isUndecodedDecimal(value)) {
+                return new SequenceReader(sequence).decodeDecimalScale(((UndecodedDataField) value).dataFieldStart);
             }
-            return list;
+            return ((BigDecimal) decodeInFormat(value)).scale();
         }
 
-        String readNumericDataField(int minLength, int maxLength) {
-            String dataField = readDataField(minLength, maxLength);
-            if (!Internals.isDigits(dataField)) {
-                throw new IllegalArgumentException("data field must be numeric");
-            }
-            return dataField;
+        private static boolean isUndecodedDecimal(Object value) {
+            return value instanceof UndecodedDataField && ((UndecodedDataField) value).entry.format == ApplicationIdentifier.Format.DECIMAL;
         }
 
-        String readDataField(int minLength, int maxLength) {
-            int length = 0;
-            int endIndex = position;
-            while (length < maxLength && endIndex < sequence.length()) {
-                if (sequence.charAt(endIndex) == SEPARATOR_CHAR) {
-                    break;
-                }
-                endIndex++;
-                length++;
+        private static int getUndecodedDateEnd(Object value) {
+            if (!(value instanceof UndecodedDataField)) {
+                return -1;
             }
-            if (length < minLength && minLength == maxLength) {
-                throw new IllegalArgumentException("data field must be exactly " + minLength + " characters long");
-            }
-            if (length < minLength) {
-                throw new IllegalArgumentException("data field must be at least " + minLength + " characters long");
-            }
-            String dataField = sequence.substring(position, endIndex);
-            position = endIndex;
-            return dataField;
+            UndecodedDataField undecoded = (UndecodedDataField) value;
+            return getDateEnd(undecoded.entry, undecoded.dataFieldStart, undecoded.dataFieldEnd);
         }
 
-        void skipSeparatorIfPresent() {
-            if (position < sequence.length() && sequence.charAt(position) == SEPARATOR_CHAR) {
-                position++;
+        private void decodeAll() {
+            if (undecodedCount > 0) {
+                for (int i = 0; i < size; i++) {
+                    decode(values[i]);
+                }
             }
         }
+    }
 
-        int remainingLength() {
-            return sequence.length() - position;
+    /**
+     * Returns true if the data field of an AI starts with a decimal point indicator.
+     */
+    static boolean hasDecimalPointIndicator(ApplicationIdentifierTable.Entry entry) {
+        return entry.format == ApplicationIdentifier.Format.DECIMAL
+                || entry.identifier == ApplicationIdentifier.AMOUNT_PAYABLE_WITH_CURRENCY
+                || entry.identifier == ApplicationIdentifier.AMOUNT_PAYABLE_PER_SINGLE_ITEM_WITH_CURRENCY;
+    }
+
+    /**
+     * Returns the length of the data field of an AI if it has a fixed length, including a decimal point indicator, or
+     * -1 if the length is variable.
+     */
+    static int getFixedDataFieldLength(ApplicationIdentifierTable.Entry entry) {
+        switch (entry.format) {
+            case NUMERIC_FIXED:
+            case ALPHANUMERIC_FIXED:
+            case DATE:
+                return entry.maxLength;
+            case DECIMAL:
+                return entry.minLength == entry.maxLength ? entry.maxLength + 1 : -1;
         }
+        return -1;
+    }
 
-        int getPosition() {
-            return position;
+    /**
+     * Returns the maximum length of the data field of an AI, excluding a decimal point indicator. AIs in a custom
+     * format defined in {@link ApplicationIdentifier} have no length there, their length is given here instead.
+     */
+    static int getMaxDataFieldLength(ApplicationIdentifierTable.Entry entry) {
+        if (entry.format != ApplicationIdentifier.Format.CUSTOM || entry.identifier == null) {
+            return entry.maxLength;
+        }
+        switch (entry.identifier) {
+            case AMOUNT_PAYABLE_WITH_CURRENCY:
+            case AMOUNT_PAYABLE_PER_SINGLE_ITEM_WITH_CURRENCY:
+                return 18;
+            case SHIP_TO_POSTAL_CODE_WITH_COUNTRY:
+                return 12;
+            case COUNTRY_OF_INITIAL_PROCESSING:
+            case COUNTRY_OF_DISASSEMBLY:
+                return 15;
+            case EXPIRATION_DATE_AND_TIME:
+                return 10;
         }
+        return entry.maxLength;
+    }
 
-        boolean startsWith(String prefix) {
-            return sequence.startsWith(prefix, position);
+    /**
+     * Returns true if the data field of an AI is a key ending with a check digit, that is an SSCC, a GTIN or a GLN.
+     */
+    static boolean hasCheckDigit(ApplicationIdentifierTable.Entry entry) {
+        if (entry.identifier == null) {
+            return false;
         }
+        switch (entry.identifier) {
+            case SSCC:
+            case GTIN:
+            case CONTAINED_GTIN:
+            case SHIP_TO_LOCATION:
+            case BILL_TO_LOCATION:
+            case PURCHASED_FROM_LOCATION:
+            case SHIP_FOR_LOCATION:
+            case PHYSICAL_LOCATION:
+            case INVOICING_PARTY:
+            case PRODUCTION_OR_SERVICE_LOCATION:
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the data field of an AI is a single date and time.
+     */
+    static boolean isDateDataField(ApplicationIdentifierTable.Entry entry) {
+        return entry.format == ApplicationIdentifier.Format.DATE
+                || entry.identifier == ApplicationIdentifier.EXPIRATION_DATE_AND_TIME
+                || entry.identifier == ApplicationIdentifier.PRODUCTION_DATE_AND_TIME;
+    }
 
-        char readChar() {
-            return sequence.charAt(position++);
+    /**
+     * Returns the index in a data field where the date and time used by the epoch accessors ends, or -1 if the data
+     * field does not start with a date. For AI 7007, a date or a range of dates, this is the end of the first date.
+     */
+    static int getDateEnd(ApplicationIdentifierTable.Entry entry, int dataFieldStart, int dataFieldEnd) {
+        if (isDateDataField(entry)) {
+            return dataFieldEnd;
         }
+        if (entry.identifier == ApplicationIdentifier.HARVEST_DATE) {
+            return dataFieldStart + 6;
+        }
+        return -1;
+    }
 
-        String read(int length) {
-            String s = peek(length);
-            position += length;
-            return s;
+    /**
+     * Returns a decoded date, or the first date of a decoded range of dates.
+     */
+    static Date toFirstDate(Object value) {
+        if (value instanceof List) {
+            return (Date) ((List) value).get(0);
         }
+        return (Date) value;
+    }
 
-        String peek(int length) {
-            return sequence.substring(position, position + length);
+    /**
+     * Returns the entry for an AI written as exactly the characters in a range, or null if not an AI. For AIs with a
+     * decimal point indicator the range also includes the indicator, as in 3103.
+     */
+    static ApplicationIdentifierTable.Entry lookupWithDecimalPointIndicator(CharSequence sequence, int start, int end) {
+        ApplicationIdentifierTable.Entry entry = ApplicationIdentifierTable.STANDARD.lookup(sequence, start, end);
+        if (entry == null) {
+            return null;
+        }
+        if (hasDecimalPointIndicator(entry)) {
+            return end - start == entry.key.length() + 1 && Internals.isDigits(sequence, end - 1, end) ? entry : null;
+        }
+        return end - start == entry.key.length() ? entry : null;
+    }
+
+    /**
+     * Returns the number of days from 1970-01-01 to the date in the default time zone.
+     */
+    static long toEpochDay(Date date) {
+        long millis = date.getTime();
+        return Internals.floorDiv(millis + TimeZone.getDefault().getOffset(millis), 86400000L);
+    }
+
+    static long toEpochSecond(Date date) {
+        return Internals.floorDiv(date.getTime(), 1000L);
+    }
+
+    /**
+     * Data field kept as offsets into the parsed sequence until its value is first requested.
+     */
+    private static final class UndecodedDataField {
+
+        private final ApplicationIdentifierTable.Entry entry;
+        private final int dataFieldStart;
+        private final int dataFieldEnd;
+
+        private UndecodedDataField(ApplicationIdentifierTable.Entry entry, int dataFieldStart, int dataFieldEnd) {
+            this.entry = entry;
+            this.dataFieldStart = dataFieldStart;
+            this.dataFieldEnd = dataFieldEnd;
+        }
+    }
+
+    /**
+     * Value of a custom AI returned by its decoder, kept together with the data field it was decoded from.
+     */
+    private static final class CustomDataField {
+
+        private final ApplicationIdentifierTable.Entry entry;
+        private final String dataField;
+        private final Object value;
+
+        private CustomDataField(ApplicationIdentifierTable.Entry entry, String dataField) {
+            this.entry = entry;
+            this.dataField = dataField;
+            this.value = entry.decoder.decode(entry.key, dataField);
+        }
+    }
+
+    /**
+     * Parses an element strings and returns a parse result. On error returns a partial parse result containing what
+     * could be successfully parsed and an error string describing what went wrong and at what position in the sequence
+     * the error occurred. The position reported is zero-based.
+     */
+    public static ParseResult parse(String sequence) {
+        return parse((CharSequence) sequence);
+    }
+
+    /**
+     * Parses an element strings held in any character sequence, such as a {@link java.nio.CharBuffer} or a
+     * {@link StringBuilder}, without copying it.
+     *
+     * @see #parse(String)
+     */
+    public static ParseResult parse(CharSequence sequence) {
+
+        if (sequence == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+
+        ParseResult result = new ParseResult();
+        parse(new SequenceReader(sequence), result);
+        return result;
+    }
+
+    /**
+     * Parses an element strings held in a range of a character array without copying it. Positions in error messages
+     * are relative to the start of the range.
+     *
+     * @see #parse(String)
+     */
+    public static ParseResult parse(char[] buf, int off, int len) {
+
+        if (buf == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        Internals.checkRange(buf.length, off, len);
+
+        ParseResult result = new ParseResult();
+        parse(new SequenceReader(CharBuffer.wrap(buf), off, off + len), result);
+        return result;
+    }
+
+    /**
+     * Parses an element strings held as ASCII in a range of a byte array without decoding it to a string first.
+     * Positions in error messages are relative to the start of the range.
+     *
+     * @see #parse(String)
+     */
+    public static ParseResult parseAscii(byte[] buf, int off, int len) {
+
+        if (buf == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        Internals.checkRange(buf.length, off, len);
+
+        ParseResult result = new ParseResult();
+        parse(new SequenceReader(new AsciiSequence(buf), off, off + len), result);
+        return result;
+    }
+
+    /**
+     * Parses an element strings held as ASCII in the remaining bytes of a buffer, heap or direct, without decoding it
+     * to a string first. The position of the buffer is not modified. Positions in error messages are relative to the
+     * position of the buffer.
+     *
+     * @see #parse(String)
+     */
+    public static ParseResult parseAscii(ByteBuffer buffer) {
+
+        if (buffer == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+
+        ParseResult result = new ParseResult();
+        parse(new SequenceReader(new AsciiSequence(buffer), buffer.position(), buffer.limit()), result);
+        return result;
+    }
+
+    /**
+     * Parses a batch of element strings into a column oriented result. Each row is parsed the same way as
+     * {@link #parse(String)}, rows with errors are kept with the elements parsed before the error. The result keeps a
+     * reference to the list and its sequences, which must not be modified while the result is in use.
+     */
+    public static BatchParseResult parseBatch(List<? extends CharSequence> sequences) {
+
+        if (sequences == null) {
+            throw new NullPointerException("Sequences must not be null");
+        }
+
+        return BatchParseResult.parse(sequences);
+    }
+
+    /**
+     * Parses element strings in parallel using an executor and returns the parse results in the same order as the
+     * sequences. The sequences are split into chunks that are parsed as separate tasks, each reusing a single reader.
+     *
+     * @throws InterruptedException if interrupted while waiting for the tasks to complete
+     */
+    public static List<ParseResult> parseParallel(List<? extends CharSequence> sequences, ExecutorService executor) throws InterruptedException {
+
+        if (sequences == null) {
+            throw new NullPointerException("Sequences must not be null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor must not be null");
+        }
+
+        int size = sequences.size();
+        ParseResult[] results = new ParseResult[size];
+        int chunkCount = Runtime.getRuntime().availableProcessors() * PARALLEL_CHUNKS_PER_PROCESSOR;
+        int chunkSize = Math.max(PARALLEL_MIN_CHUNK_SIZE, (size + chunkCount - 1) / chunkCount);
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int start = 0; start < size; start += chunkSize) {
+            futures.add(executor.submit(new ParseChunk(sequences, results, start, Math.min(start + chunkSize, size))));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Parses a range of sequences into the corresponding range of a result array.
+     */
+    private static final class ParseChunk implements Runnable {
+
+        private final List<? extends CharSequence> sequences;
+        private final ParseResult[] results;
+        private final int start;
+        private final int end;
+
+        private ParseChunk(List<? extends CharSequence> sequences, ParseResult[] results, int start, int end) {
+            this.sequences = sequences;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        public void run() {
+            SequenceReader reader = new SequenceReader("");
+            for (int i = start; i < end; i++) {
+                CharSequence sequence = sequences.get(i);
+                if (sequence == null) {
+                    throw new NullPointerException("Sequence must not be null");
+                }
+                ParseResult result = new ParseResult();
+                reader.reset(sequence, 0, sequence.length());
+                parse(reader, result);
+                results[i] = result;
+            }
+        }
+    }
+
+    /**
+     * Parses an element strings reporting each element to a handler instead of collecting them in a parse result. The
+     * handler receives the key of each AI and the start and end index of its data field in the sequence, no values are
+     * decoded. Parsing stops at the first error, which is reported to the handler, or when the handler asks to stop.
+     */
+    public static void parse(CharSequence sequence, ElementHandler handler) {
+
+        if (sequence == null) {
+            throw new NullPointerException("Sequence must not be null");
+        }
+        if (handler == null) {
+            throw new NullPointerException("Handler must not be null");
+        }
+
+        parse(new SequenceReader(sequence), handler);
+    }
+
+    /**
+     * Receives the elements of an element strings as they are parsed.
+     *
+     * @see ElementStrings#parse(CharSequence, ElementHandler)
+     */
+    public interface ElementHandler {
+
+        /**
+         * Called for each element. The data field starts directly after the key, for decimal AIs that means it starts
+         * with the decimal point indicator. A separator character following the data field is not included.
+         *
+         * @param key            the AI, such as "01" or "7030"
+         * @param identifier     the AI as a constant, null for AIs without constants such as 7030 or 91
+         * @param dataFieldStart index in the sequence of the first character of the data field
+         * @param dataFieldEnd   index in the sequence after the last character of the data field
+         * @return true to continue parsing, false to stop
+         */
+        boolean element(String key, ApplicationIdentifier identifier, int dataFieldStart, int dataFieldEnd);
+
+        /**
+         * Called when parsing stops because of an error.
+         *
+         * @param error    the error
+         * @param key      the AI whose data field is invalid, null if the AI was not recognized
+         * @param position index in the sequence of the AI
+         */
+        void error(ParseError error, String key, int position);
+    }
+
+    /**
+     * Errors that stop parsing of an element strings, a GS1 Digital Link URI or a human readable interpretation.
+     */
+    public enum ParseError {
+        UNRECOGNIZED_AI,
+        DATA_FIELD_NOT_EXACT_LENGTH,
+        DATA_FIELD_TOO_SHORT,
+        DATA_FIELD_NOT_NUMERIC,
+        INVALID_DATA_FIELD_LENGTH,
+        INVALID_DECIMAL_POINT_INDICATOR,
+        INVALID_DATE,
+        UNEXPECTED_END_OF_DATA,
+        UNSUPPORTED_SYMBOLOGY_IDENTIFIER,
+        DATA_FIELD_TOO_LONG,
+        INVALID_PERCENT_ENCODING,
+        INVALID_URI,
+        MISSING_PARENTHESIS,
+        DUPLICATE_AI,
+        MISSING_ASSOCIATED_AI,
+        INVALID_AI_COMBINATION,
+        INVALID_CHECK_DIGIT,
+        INVALID_CHARACTER;
+
+        /**
+         * Describes the error for a data field.
+         *
+         * @param length the expected length for errors on data field length, the index in the data field for an
+         *               invalid character
+         */
+        String describe(int length) {
+            switch (this) {
+                case UNRECOGNIZED_AI:
+                    return "unrecognized AI";
+                case DATA_FIELD_NOT_EXACT_LENGTH:
+                    return "data field must be exactly " + length + " characters long";
+                case DATA_FIELD_TOO_SHORT:
+                    return "data field must be at least " + length + " characters long";
+                case DATA_FIELD_NOT_NUMERIC:
+                    return "data field must be numeric";
+                case INVALID_DATA_FIELD_LENGTH:
+                    return "invalid data field length";
+                case INVALID_DECIMAL_POINT_INDICATOR:
+                    return "decimal point indicator must be a digit";
+                case INVALID_DATE:
+                    return "invalid date";
+                case UNEXPECTED_END_OF_DATA:
+                    return "unexpected end of data";
+                case UNSUPPORTED_SYMBOLOGY_IDENTIFIER:
+                    return "unsupported symbology identifier";
+                case DATA_FIELD_TOO_LONG:
+                    return "data field must be at most " + length + " characters long";
+                case INVALID_PERCENT_ENCODING:
+                    return "invalid percent encoding";
+                case INVALID_URI:
+                    return "invalid URI";
+                case MISSING_PARENTHESIS:
+                    return "missing parenthesis";
+                case DUPLICATE_AI:
+                    return "duplicate AI";
+                case MISSING_ASSOCIATED_AI:
+                    return "missing associated AI";
+                case INVALID_AI_COMBINATION:
+                    return "invalid combination of AIs";
+                case INVALID_CHECK_DIGIT:
+                    return "invalid check digit";
+                case INVALID_CHARACTER:
+                    return "invalid character at index " + length;
+            }
+            return name();
+        }
+    }
+
+    static void parse(SequenceReader reader, ParseResult result) {
+        parse(reader, result, false);
+    }
+
+    static void parse(SequenceReader reader, ParseResult result, boolean lazyDecoding) {
+        parse(reader, ApplicationIdentifierTable.STANDARD, result, lazyDecoding, false);
+    }
+
+    /**
+     * Parses into a result, with lazy decoding data fields are validated but kept undecoded in the result which then
+     * holds on to the sequence. When collecting all errors parsing continues after an invalid element where the next
+     * element is expected to start, see {@link SequenceReader#resynchronize(int, int)}.
+     */
+    static void parse(SequenceReader reader, ApplicationIdentifierTable table, ParseResult result, boolean lazyDecoding, boolean collectAllErrors) {
+
+        int symbologyIdentifierPosition = reader.getPosition();
+        result.symbologyIdentifier = reader.readSymbologyIdentifier();
+        if (reader.getError() != null) {
+            result.setError(reader.getError(), 0, null, symbologyIdentifierPosition);
+            return;
+        }
+
+        while (!(reader.remainingLength() == 0)) {
+
+            int identifierPosition = reader.getPosition();
+            int identifierOffset = reader.getOffset();
+            ApplicationIdentifierTable.Entry entry = reader.readIdentifier(table);
+            if (entry == null) {
+                result.setError(ParseError.UNRECOGNIZED_AI, 0, null, identifierPosition);
+                if (!collectAllErrors) {
+                    break;
+                }
+                reader.resynchronize(identifierOffset, -1);
+                continue;
+            }
+
+            int dataFieldStart = reader.getOffset();
+            int dataFieldEnd = readDataField(entry, reader);
+            if (dataFieldEnd == -1) {
+                result.setError(reader.getError(), reader.getErrorLength(), entry.key, identifierPosition);
+                if (!collectAllErrors) {
+                    break;
+                }
+                reader.resynchronize(dataFieldStart, getFixedDataFieldLength(entry));
+                continue;
+            }
+            if (lazyDecoding) {
+                result.putUndecoded(reader.getSequence(), entry, dataFieldStart, dataFieldEnd);
+            } else {
+                result.putDecoded(entry, reader, dataFieldStart, dataFieldEnd);
+            }
+        }
+    }
+
+    static void parse(SequenceReader reader, ElementHandler handler) {
+        parse(reader, ApplicationIdentifierTable.STANDARD, handler);
+    }
+
+    static void parse(SequenceReader reader, ApplicationIdentifierTable table, ElementHandler handler) {
+
+        int symbologyIdentifierOffset = reader.getOffset();
+        reader.readSymbologyIdentifier();
+        if (reader.getError() != null) {
+            handler.error(reader.getError(), null, symbologyIdentifierOffset);
+            return;
+        }
+
+        while (!(reader.remainingLength() == 0)) {
+
+            int identifierOffset = reader.getOffset();
+            ApplicationIdentifierTable.Entry entry = reader.readIdentifier(table);
+            if (entry == null) {
+                handler.error(ParseError.UNRECOGNIZED_AI, null, identifierOffset);
+                return;
+            }
+
+            int dataFieldStart = reader.getOffset();
+            int dataFieldEnd = readDataField(entry, reader);
+            if (dataFieldEnd == -1) {
+                handler.error(reader.getError(), entry.key, identifierOffset);
+                return;
+            }
+            if (!handler.element(entry.key, entry.identifier, dataFieldStart, dataFieldEnd)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves the reader past the data field of an AI validating its format and returns the index where the data field
+     * ends. A separator character following the data field is skipped. Returns -1 if the data field is invalid, the
+     * error is then available from the reader.
+     */
+    static int readDataField(ApplicationIdentifierTable.Entry entry, SequenceReader reader) {
+        switch (entry.format) {
+            case NUMERIC_FIXED:
+                if (reader.isCheckDigitVerification() && hasCheckDigit(entry)) {
+                    return reader.skipNumericDataFieldWithCheckDigit(entry.maxLength) == -1 ? -1 : reader.endDataField();
+                }
+                return reader.skipNumericDataField(entry.maxLength, entry.maxLength) == -1 ? -1 : reader.endDataField();
+            case NUMERIC_VARIABLE:
+                return reader.skipNumericDataField(entry.minLength, entry.maxLength) == -1 ? -1 : reader.endDataField();
+            case ALPHANUMERIC_FIXED:
+                return reader.skipDataField(entry.maxLength, entry.maxLength) == -1 ? -1 : reader.endDataField();
+            case ALPHANUMERIC_VARIABLE:
+                return reader.skipDataField(entry.minLength, entry.maxLength) == -1 ? -1 : reader.endDataField();
+            case DECIMAL:
+                if (!reader.skipDecimalPointIndicator() || reader.skipNumericDataField(entry.minLength, entry.maxLength) == -1) {
+                    return -1;
+                }
+                return reader.endDataField();
+            case DATE: {
+                int dataFieldStart = reader.skipNumericDataField(6, 6);
+                if (dataFieldStart == -1 || !reader.validateDateAndTime(dataFieldStart, 6)) {
+                    return -1;
+                }
+                return reader.endDataField();
+            }
+            case CUSTOM:
+                return readDataFieldInCustomFormat(entry, reader);
+        }
+        throw new IllegalStateException("Unsupported format " + entry.format);
+    }
+
+    /**
+     * Returns the index of the first character in a range that is not allowed in element strings, or -1 if there is
+     * none. Allowed characters are a subset of printable ASCII.
+     */
+    static int indexOfInvalidCharacter(CharSequence sequence, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = sequence.charAt(i);
+            if (c < 0x21 || c > 0x7E) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Validates that a range of a sequence is exactly one data field for an AI, consisting of characters allowed in
+     * element strings. Returns a description of the error or null if the data field is valid.
+     */
+    static String validateDataField(ApplicationIdentifierTable.Entry entry, SequenceReader reader, CharSequence sequence, int start, int end) {
+        int invalid = indexOfInvalidCharacter(sequence, start, end);
+        if (invalid != -1) {
+            return ParseError.INVALID_CHARACTER.describe(invalid - start);
+        }
+        reader.reset(sequence, start, end);
+        String error = null;
+        if (readDataField(entry, reader) == -1) {
+            error = reader.getError().describe(reader.getErrorLength());
+        } else if (reader.remainingLength() != 0) {
+            error = ParseError.DATA_FIELD_TOO_LONG.describe(getMaxDataFieldLength(entry));
+        }
+        reader.reset("", 0, 0);
+        return error;
+    }
+
+    private static int readDataFieldInCustomFormat(ApplicationIdentifierTable.Entry entry, SequenceReader reader) {
+
+        if (entry.components != null) {
+            return readComponents(entry.components, reader);
+        }
+
+        // Support for AIs 703s Number of processor with three-digit ISO country code
+        if (entry.identifier == null) {
+            if (reader.skipNumericDataField(3, 3) == -1 || reader.skipDataField(1, 27) == -1) {
+                return -1;
+            }
+            return reader.endDataField();
+        }
+
+        switch (entry.identifier) {
+            case AMOUNT_PAYABLE_WITH_CURRENCY:
+            case AMOUNT_PAYABLE_PER_SINGLE_ITEM_WITH_CURRENCY:
+                if (!reader.skipDecimalPointIndicator() || reader.skipNumericDataField(3, 3) == -1 || reader.skipNumericDataField(1, 15) == -1) {
+                    return -1;
+                }
+                return reader.endDataField();
+            case SHIP_TO_POSTAL_CODE_WITH_COUNTRY:
+                if (reader.skipNumericDataField(3, 3) == -1 || reader.skipDataField(1, 9) == -1) {
+                    return -1;
+                }
+                return reader.endDataField();
+            case COUNTRY_OF_INITIAL_PROCESSING:
+            case COUNTRY_OF_DISASSEMBLY: {
+                int dataFieldStart = reader.skipNumericDataField(3, 15);
+                if (dataFieldStart == -1) {
+                    return -1;
+                }
+                if ((reader.getOffset() - dataFieldStart) % 3 != 0) {
+                    return reader.fail(ParseError.INVALID_DATA_FIELD_LENGTH);
+                }
+                return reader.endDataField();
+            }
+            case EXPIRATION_DATE_AND_TIME: {
+                int dataFieldStart = reader.skipNumericDataField(10, 10);
+                if (dataFieldStart == -1 || !reader.validateDateAndTime(dataFieldStart, 10)) {
+                    return -1;
+                }
+                return reader.endDataField();
+            }
+            case HARVEST_DATE: {
+                int dataFieldStart = reader.skipNumericDataField(6, 12);
+                if (dataFieldStart == -1) {
+                    return -1;
+                }
+                int length = reader.getOffset() - dataFieldStart;
+                if (length != 6 && length != 12) {
+                    return reader.fail(ParseError.INVALID_DATA_FIELD_LENGTH);
+                }
+                if (!reader.validateDateAndTime(dataFieldStart, 6) || (length == 12 && !reader.validateDateAndTime(dataFieldStart + 6, 6))) {
+                    return -1;
+                }
+                return reader.endDataField();
+            }
+            case PRODUCTION_DATE_AND_TIME: {
+                int dataFieldStart = reader.skipNumericDataField(8, 12);
+                if (dataFieldStart == -1) {
+                    return -1;
+                }
+                int length = reader.getOffset() - dataFieldStart;
+                if (length != 8 && length != 12) {
+                    return reader.fail(ParseError.INVALID_DATA_FIELD_LENGTH);
+                }
+                if (!reader.validateDateAndTime(dataFieldStart, length)) {
+                    return -1;
+                }
+                return reader.endDataField();
+            }
+        }
+        throw new IllegalStateException("Unsupported AI " + entry.key);
+    }
+
+    private static int readComponents(ApplicationIdentifierTable.Component[] components, SequenceReader reader) {
+        for (ApplicationIdentifierTable.Component component : components) {
+            if (component.optional && reader.isAtEndOfDataField()) {
+                break;
+            }
+            int componentStart = component.numeric
+                    ? reader.skipNumericDataField(component.minLength, component.maxLength)
+                    : reader.skipDataField(component.minLength, component.maxLength);
+            if (componentStart == -1) {
+                return -1;
+            }
+            if (component.dateLength != 0 && !reader.validateDateAndTime(componentStart, component.dateLength)) {
+                return -1;
+            }
+        }
+        return reader.endDataField();
+    }
+
+    /**
+     * Decodes a data field previously validated by {@link #readDataField}.
+     */
+    static Object decodeDataField(ApplicationIdentifierTable.Entry entry, SequenceReader reader, int dataFieldStart, int dataFieldEnd) {
+        if (entry.decoder != null) {
+            return entry.decoder.decode(entry.key, reader.decodeString(dataFieldStart, dataFieldEnd));
+        }
+        return decodeDataFieldInFormat(entry, reader, dataFieldStart, dataFieldEnd);
+    }
+
+    /**
+     * Decodes a data field according to the format of its AI, without calling the decoder of a custom AI.
+     */
+    static Object decodeDataFieldInFormat(ApplicationIdentifierTable.Entry entry, SequenceReader reader, int dataFieldStart, int dataFieldEnd) {
+        switch (entry.format) {
+            case NUMERIC_FIXED:
+            case NUMERIC_VARIABLE:
+            case ALPHANUMERIC_FIXED:
+            case ALPHANUMERIC_VARIABLE:
+                return reader.decodeString(dataFieldStart, dataFieldEnd);
+            case DECIMAL:
+                return reader.decodeDecimal(dataFieldStart, dataFieldStart + 1, dataFieldEnd);
+            case DATE:
+                return reader.decodeDateAndTime(dataFieldStart, 6);
+            case CUSTOM:
+                return decodeDataFieldInCustomFormat(entry, reader, dataFieldStart, dataFieldEnd);
+        }
+        throw new IllegalStateException("Unsupported format " + entry.format);
+    }
+
+    private static Object decodeDataFieldInCustomFormat(ApplicationIdentifierTable.Entry entry, SequenceReader reader, int dataFieldStart, int dataFieldEnd) {
+
+        if (entry.components != null) {
+            return reader.decodeString(dataFieldStart, dataFieldEnd);
+        }
+
+        // Support for AIs 703s Number of processor with three-digit ISO country code
+        if (entry.identifier == null) {
+            return Arrays.asList(reader.decodeString(dataFieldStart, dataFieldStart + 3), reader.decodeString(dataFieldStart + 3, dataFieldEnd));
+        }
+
+        switch (entry.identifier) {
+            case AMOUNT_PAYABLE_WITH_CURRENCY:
+            case AMOUNT_PAYABLE_PER_SINGLE_ITEM_WITH_CURRENCY: {
+                String currencyCode = reader.decodeString(dataFieldStart + 1, dataFieldStart + 4);
+                BigDecimal amount = reader.decodeDecimal(dataFieldStart, dataFieldStart + 4, dataFieldEnd);
+                return Arrays.asList(currencyCode, amount);
+            }
+            case SHIP_TO_POSTAL_CODE_WITH_COUNTRY: {
+                String countryCode = reader.decodeString(dataFieldStart, dataFieldStart + 3);
+                String postalCode = reader.decodeString(dataFieldStart + 3, dataFieldEnd);
+                return Arrays.asList(countryCode, postalCode);
+            }
+            case COUNTRY_OF_INITIAL_PROCESSING:
+            case COUNTRY_OF_DISASSEMBLY: {
+                ArrayList<String> list = new ArrayList<String>();
+                for (int i = dataFieldStart; i < dataFieldEnd; i += 3) {
+                    list.add(reader.decodeString(i, i + 3));
+                }
+                return list;
+            }
+            case EXPIRATION_DATE_AND_TIME:
+                return reader.decodeDateAndTime(dataFieldStart, 10);
+            case HARVEST_DATE:
+                if (dataFieldEnd - dataFieldStart == 6) {
+                    return Collections.singletonList(reader.decodeDateAndTime(dataFieldStart, 6));
+                }
+                return Arrays.asList(reader.decodeDateAndTime(dataFieldStart, 6), reader.decodeDateAndTime(dataFieldStart + 6, 6));
+            case PRODUCTION_DATE_AND_TIME:
+                return reader.decodeDateAndTime(dataFieldStart, dataFieldEnd - dataFieldStart);
+        }
+        throw new IllegalStateException("Unsupported AI " + entry.key);
+    }
+
+    /**
+     * Appends a decoded value encoded as a data field, the reverse of {@link #decodeDataField}. Dates are encoded in
+     * the default time zone. Leading zeroes of variable length decimals are not restored. Values returned by the
+     * decoder of a custom AI can not be encoded, their data field is kept instead.
+     */
+    static void appendDataField(StringBuilder builder, ApplicationIdentifierTable.Entry entry, Object value) {
+        if (entry.decoder != null) {
+            throw new IllegalStateException("Value of custom AI " + entry.key + " can not be encoded");
+        }
+        switch (entry.format) {
+            case NUMERIC_FIXED:
+            case NUMERIC_VARIABLE:
+            case ALPHANUMERIC_FIXED:
+            case ALPHANUMERIC_VARIABLE:
+                builder.append((String) value);
+                return;
+            case DECIMAL: {
+                BigDecimal decimal = (BigDecimal) value;
+                builder.append((char) ('0' + decimal.scale()));
+                appendDigits(builder, decimal.unscaledValue().toString(), entry.minLength == entry.maxLength ? entry.maxLength : 0);
+                return;
+            }
+            case DATE:
+                appendDateAndTime(builder, (Date) value, 6);
+                return;
+            case CUSTOM:
+                appendDataFieldInCustomFormat(builder, entry, value);
+                return;
+        }
+        throw new IllegalStateException("Unsupported format " + entry.format);
+    }
+
+    private static void appendDataFieldInCustomFormat(StringBuilder builder, ApplicationIdentifierTable.Entry entry, Object value) {
+
+        if (entry.components != null) {
+            builder.append((String) value);
+            return;
+        }
+
+        // Support for AIs 703s Number of processor with three-digit ISO country code
+        if (entry.identifier == null) {
+            appendStrings(builder, (List) value);
+            return;
+        }
+
+        switch (entry.identifier) {
+            case AMOUNT_PAYABLE_WITH_CURRENCY:
+            case AMOUNT_PAYABLE_PER_SINGLE_ITEM_WITH_CURRENCY: {
+                List list = (List) value;
+                BigDecimal amount = (BigDecimal) list.get(1);
+                builder.append((char) ('0' + amount.scale())).append((String) list.get(0));
+                appendDigits(builder, amount.unscaledValue().toString(), 0);
+                return;
+            }
+            case SHIP_TO_POSTAL_CODE_WITH_COUNTRY:
+            case COUNTRY_OF_INITIAL_PROCESSING:
+            case COUNTRY_OF_DISASSEMBLY:
+                appendStrings(builder, (List) value);
+                return;
+            case EXPIRATION_DATE_AND_TIME:
+                appendDateAndTime(builder, (Date) value, 10);
+                return;
+            case HARVEST_DATE:
+                for (Object date : (List) value) {
+                    appendDateAndTime(builder, (Date) date, 6);
+                }
+                return;
+            case PRODUCTION_DATE_AND_TIME: {
+                // Minutes and seconds are optional and only written when either is not zero in the default time zone
+                long localSecond = toLocalSecond((Date) value);
+                appendDateAndTime(builder, (Date) value, localSecond != Internals.floorDiv(localSecond, 3600L) * 3600L ? 12 : 8);
+                return;
+            }
+        }
+        throw new IllegalStateException("Unsupported AI " + entry.key);
+    }
+
+    private static void appendStrings(StringBuilder builder, List strings) {
+        for (Object string : strings) {
+            builder.append((String) string);
+        }
+    }
+
+    private static void appendDigits(StringBuilder builder, String digits, int length) {
+        for (int i = digits.length(); i < length; i++) {
+            builder.append('0');
+        }
+        builder.append(digits);
+    }
+
+    /**
+     * Appends a date and time in the default time zone as YYMMDD[HH[MM[SS]]].
+     */
+    private static void appendDateAndTime(StringBuilder builder, Date date, int length) {
+        long localSecond = toLocalSecond(date);
+        long epochDay = Internals.floorDiv(localSecond, 86400L);
+        int secondOfDay = (int) (localSecond - epochDay * 86400L);
+        long civilDate = Internals.toCivilDate(epochDay);
+        appendTwoDigits(builder, (int) (civilDate / 10000 % 100));
+        appendTwoDigits(builder, (int) (civilDate / 100 % 100));
+        appendTwoDigits(builder, (int) (civilDate % 100));
+        if (length >= 8) {
+            appendTwoDigits(builder, secondOfDay / 3600);
+        }
+        if (length >= 10) {
+            appendTwoDigits(builder, secondOfDay / 60 % 60);
+        }
+        if (length >= 12) {
+            appendTwoDigits(builder, secondOfDay % 60);
+        }
+    }
+
+    /**
+     * Returns the seconds since the epoch of a date as local time in the default time zone.
+     */
+    private static long toLocalSecond(Date date) {
+        long millis = date.getTime();
+        return Internals.floorDiv(millis + TimeZone.getDefault().getOffset(millis), 1000L);
+    }
+
+    private static void appendTwoDigits(StringBuilder builder, int value) {
+        builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    static class SequenceReader {
+
+        private static final char SEPARATOR_CHAR = 0x1D;
+
+        private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+        private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+        // Days from 1970-01-01 to 0000-01-01 in the proleptic gregorian calendar
+        private static final int DAYS_0000_TO_1970 = 719528;
+
+        private static volatile CurrentYear currentYear;
+
+        private CharSequence sequence;
+        private int start;
+        private int end;
+        private int position;
+        private ParseError error;
+        private int errorLength;
+        private boolean checkDigitVerification;
+
+        SequenceReader(CharSequence sequence) {
+            this(sequence, 0, sequence.length());
+        }
+
+        SequenceReader(CharSequence sequence, int start, int end) {
+            reset(sequence, start, end);
+        }
+
+        /**
+         * Prepares the reader for reading another sequence.
+         */
+        void reset(CharSequence sequence, int start, int end) {
+            this.sequence = sequence;
+            this.start = start;
+            this.end = end;
+            this.position = start;
+            this.error = null;
+            this.errorLength = 0;
+        }
+
+        /**
+         * Validates a date and time of the form YYMMDD[HH[MM[SS]]] in a range of digits in the sequence.
+         */
+        boolean validateDateAndTime(int offset, int length) {
+            int year = resolveTwoDigitYear(readTwoDigits(offset), getCurrentYear());
+            int month = readTwoDigits(offset + 2);
+            int day = readTwoDigits(offset + 4);
+            int hour = length >= 8 ? readTwoDigits(offset + 6) : 0;
+            int minutes = length >= 10 ? readTwoDigits(offset + 8) : 0;
+            int seconds = length >= 12 ? readTwoDigits(offset + 10) : 0;
+            if (month < 1 || month > 12 || day > lengthOfMonth(year, month) || hour > 23 || minutes > 59 || seconds > 59) {
+                fail(ParseError.INVALID_DATE);
+                return false;
+            }
+            // A local time skipped by a daylight saving transition in the default time zone is not a valid date, as
+            // when dates were validated with a non-lenient Calendar. That also checked a day of zero, the last day of
+            // the month, on the first day of the month.
+            long localMillis = (toEpochDay(year, month, day == 0 ? 1 : day) * 86400L + hour * 3600 + minutes * 60 + seconds) * 1000L;
+            TimeZone timeZone = TimeZone.getDefault();
+            long millis = toEpochMillis(localMillis, timeZone);
+            if (millis + timeZone.getOffset(millis) != localMillis) {
+                fail(ParseError.INVALID_DATE);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Decodes a date and time of the form YYMMDD[HH[MM[SS]]] from a range of digits in the sequence. The date and
+         * time is in the default time zone.
+         */
+        Date decodeDateAndTime(int offset, int length) {
+            return new Date(toEpochMillis(decodeLocalEpochSecond(offset, length) * 1000L));
+        }
+
+        /**
+         * Decodes a validated date and time data field as the number of days from 1970-01-01.
+         */
+        long decodeEpochDay(int dataFieldStart, int dataFieldEnd) {
+            return Internals.floorDiv(decodeLocalEpochSecond(dataFieldStart, dataFieldEnd - dataFieldStart), 86400L);
+        }
+
+        /**
+         * Decodes a validated date and time data field in the default time zone as the number of seconds from
+         * 1970-01-01T00:00:00Z.
+         */
+        long decodeEpochSecond(int dataFieldStart, int dataFieldEnd) {
+            return Internals.floorDiv(toEpochMillis(decodeLocalEpochSecond(dataFieldStart, dataFieldEnd - dataFieldStart) * 1000L), 1000L);
+        }
+
+        /**
+         * Converts milliseconds from 1970-01-01T00:00:00 local time in the default time zone to milliseconds from the
+         * epoch.
+         */
+        static long toEpochMillis(long localMillis) {
+            return toEpochMillis(localMillis, TimeZone.getDefault());
+        }
+
+        private static long toEpochMillis(long localMillis, TimeZone timeZone) {
+            // Resolves the offset from local time the same way Calendar does, a local time skipped by a daylight saving
+            // transition uses the offset before the transition
+            int zoneOffset = timeZone.getOffset(localMillis - timeZone.getRawOffset());
+            return localMillis - timeZone.getOffset(localMillis - zoneOffset);
+        }
+
+        /**
+         * Decodes a validated date and time of the form YYMMDD[HH[MM[SS]]] from a range of digits in the sequence as
+         * seconds from 1970-01-01T00:00:00 without regard to time zone.
+         */
+        long decodeLocalEpochSecond(int offset, int length) {
+            int year = resolveTwoDigitYear(readTwoDigits(offset), getCurrentYear());
+            int month = readTwoDigits(offset + 2);
+            int day = readTwoDigits(offset + 4);
+            int hour = length >= 8 ? readTwoDigits(offset + 6) : 0;
+            int minutes = length >= 10 ? readTwoDigits(offset + 8) : 0;
+            int seconds = length >= 12 ? readTwoDigits(offset + 10) : 0;
+            // When day is zero that means last day of the month
+            if (day == 0) {
+                day = lengthOfMonth(year, month);
+            }
+            return toEpochDay(year, month, day) * 86400L + hour * 3600 + minutes * 60 + seconds;
+        }
+
+        /**
+         * Converts a two digit year to four digits using the algorithm in GS1 General specification section 7.12.
+         *
+         * @param year        two digit year
+         * @param currentYear four digit century and year
+         */
+        int resolveTwoDigitYear(int year, int currentYear) {
+            int century = currentYear - (currentYear % 100);
+            int difference = year - (currentYear % 100);
+            if (difference >= 51 && difference <= 99) {
+                century -= 100;
+            } else if (difference >= -99 && difference <= -50) {
+                century += 100;
+            }
+            return century + year;
+        }
+
+        /**
+         * Decodes a decimal from a decimal point indicator and a range of digits in the sequence.
+         */
+        BigDecimal decodeDecimal(int decimalPointIndicatorOffset, int digitsStart, int digitsEnd) {
+            return BigDecimal.valueOf(decodeUnscaledDecimal(digitsStart, digitsEnd), decodeDecimalScale(decimalPointIndicatorOffset));
+        }
+
+        /**
+         * Decodes a range of at most 18 digits in the sequence as a long.
+         */
+        long decodeUnscaledDecimal(int digitsStart, int digitsEnd) {
+            long value = 0;
+            for (int i = digitsStart; i < digitsEnd; i++) {
+                value = value * 10 + (sequence.charAt(i) - '0');
+            }
+            return value;
+        }
+
+        int decodeDecimalScale(int decimalPointIndicatorOffset) {
+            return sequence.charAt(decimalPointIndicatorOffset) - '0';
+        }
+
+        boolean skipDecimalPointIndicator() {
+            if (position >= end) {
+                fail(ParseError.UNEXPECTED_END_OF_DATA);
+                return false;
+            }
+            char decimalPointIndicator = sequence.charAt(position);
+            if (decimalPointIndicator < '0' || decimalPointIndicator > '9') {
+                fail(ParseError.INVALID_DECIMAL_POINT_INDICATOR);
+                return false;
+            }
+            position++;
+            return true;
+        }
+
+        /**
+         * Moves past a data field consisting of digits and returns the index where it starts, or -1 if invalid.
+         */
+        int skipNumericDataField(int minLength, int maxLength) {
+            int dataFieldStart = skipDataField(minLength, maxLength);
+            if (dataFieldStart != -1 && !Internals.isDigits(sequence, dataFieldStart, position)) {
+                return fail(ParseError.DATA_FIELD_NOT_NUMERIC);
+            }
+            return dataFieldStart;
+        }
+
+        /**
+         * Moves past a fixed length numeric data field ending with a check digit and returns the index where it starts,
+         * or -1 if invalid. The digits and the check digit are verified in the same loop.
+         */
+        int skipNumericDataFieldWithCheckDigit(int length) {
+            int dataFieldStart = skipDataField(length, length);
+            if (dataFieldStart == -1) {
+                return -1;
+            }
+            // Weighted sum including the check digit, digits at an odd distance from the check digit have weight 3
+            int sum = 0;
+            int checkDigitIndex = position - 1;
+            for (int i = dataFieldStart; i <= checkDigitIndex; i++) {
+                int digit = sequence.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return fail(ParseError.DATA_FIELD_NOT_NUMERIC);
+                }
+                sum += ((checkDigitIndex - i) & 1) != 0 ? digit * 3 : digit;
+            }
+            if (sum % 10 != 0) {
+                return fail(ParseError.INVALID_CHECK_DIGIT);
+            }
+            return dataFieldStart;
+        }
+
+        /**
+         * Moves past a data field and returns the index where it starts, or -1 if invalid.
+         */
+        int skipDataField(int minLength, int maxLength) {
+            int length = 0;
+            int endIndex = position;
+            while (length < maxLength && endIndex < end) {
+                if (sequence.charAt(endIndex) == SEPARATOR_CHAR) {
+                    break;
+                }
+                endIndex++;
+                length++;
+            }
+            if (length < minLength && minLength == maxLength) {
+                return fail(ParseError.DATA_FIELD_NOT_EXACT_LENGTH, minLength);
+            }
+            if (length < minLength) {
+                return fail(ParseError.DATA_FIELD_TOO_SHORT, minLength);
+            }
+            int dataFieldStart = position;
+            position = endIndex;
+            return dataFieldStart;
+        }
+
+        /**
+         * Ends a data field at the current position and returns the position, skipping a separator character following
+         * the data field.
+         */
+        int endDataField() {
+            int dataFieldEnd = position;
+            skipSeparatorIfPresent();
+            return dataFieldEnd;
+        }
+
+        /**
+         * Reads a symbology identifier at the current position and skips a separator character following it, which is
+         * how some scanners transmit FNC1 in first position. Returns null if there is no symbology identifier. Fails
+         * with an error if the symbology identifier is not one for GS1 element strings.
+         */
+        SymbologyIdentifier readSymbologyIdentifier() {
+            if (position >= end || sequence.charAt(position) != SymbologyIdentifier.FLAG_CHARACTER) {
+                skipSeparatorIfPresent();
+                return null;
+            }
+            if (end - position < SymbologyIdentifier.LENGTH) {
+                fail(ParseError.UNSUPPORTED_SYMBOLOGY_IDENTIFIER);
+                return null;
+            }
+            SymbologyIdentifier symbologyIdentifier = SymbologyIdentifier.lookup(sequence.charAt(position + 1), sequence.charAt(position + 2));
+            if (symbologyIdentifier == null) {
+                fail(ParseError.UNSUPPORTED_SYMBOLOGY_IDENTIFIER);
+                return null;
+            }
+            position += SymbologyIdentifier.LENGTH;
+            skipSeparatorIfPresent();
+            return symbologyIdentifier;
+        }
+
+        /**
+         * Returns true if at the end of the data or at a separator character.
+         */
+        boolean isAtEndOfDataField() {
+            return position >= end || sequence.charAt(position) == SEPARATOR_CHAR;
+        }
+
+        /**
+         * Moves past the rest of an invalid element, from an index where its AI or data field starts, to where the next
+         * element is expected to start. That is after the next separator character, or for a data field of fixed length
+         * after the end of the data field if no separator character is found before it. Moves to the end of the data
+         * if neither is found. Clears the error.
+         *
+         * @param fixedLength the fixed length of the data field, or -1 if its length is variable or unknown
+         */
+        void resynchronize(int index, int fixedLength) {
+            int limit = fixedLength != -1 ? Math.min(end, index + fixedLength) : end;
+            position = limit;
+            for (int i = index; i < limit; i++) {
+                if (sequence.charAt(i) == SEPARATOR_CHAR) {
+                    position = i;
+                    break;
+                }
+            }
+            skipSeparatorIfPresent();
+            error = null;
+            errorLength = 0;
+        }
+
+        void skipSeparatorIfPresent() {
+            if (position < end && sequence.charAt(position) == SEPARATOR_CHAR) {
+                position++;
+            }
+        }
+
+        int fail(ParseError error) {
+            return fail(error, 0);
+        }
+
+        /**
+         * Records an error and returns -1.
+         *
+         * @param length the expected length for errors on data field length
+         */
+        int fail(ParseError error, int length) {
+            this.error = error;
+            this.errorLength = length;
+            return -1;
+        }
+
+        ParseError getError() {
+            return error;
+        }
+
+        int getErrorLength() {
+            return errorLength;
+        }
+
+        int remainingLength() {
+            return end - position;
+        }
+
+        /**
+         * Returns the position relative to the start of the element string.
+         */
+        int getPosition() {
+            return position - start;
+        }
+
+        CharSequence getSequence() {
+            return sequence;
+        }
+
+        boolean isCheckDigitVerification() {
+            return checkDigitVerification;
+        }
+
+        /**
+         * Enables verification of check digits in data fields of keys, kept when the reader is reset.
+         */
+        void setCheckDigitVerification(boolean checkDigitVerification) {
+            this.checkDigitVerification = checkDigitVerification;
+        }
+
+        /**
+         * Returns the position as an index in the sequence.
+         */
+        int getOffset() {
+            return position;
+        }
+
+        ApplicationIdentifierTable.Entry readIdentifier(ApplicationIdentifierTable table) {
+            ApplicationIdentifierTable.Entry entry = table.lookup(sequence, position, end);
+            if (entry != null) {
+                position += entry.key.length();
+            }
+            return entry;
+        }
+
+        String decodeString(int beginIndex, int endIndex) {
+            return sequence.subSequence(beginIndex, endIndex).toString();
+        }
+
+        private int readTwoDigits(int offset) {
+            return (sequence.charAt(offset) - '0') * 10 + (sequence.charAt(offset + 1) - '0');
+        }
+
+        private static int lengthOfMonth(int year, int month) {
+            if (month == 2 && isLeapYear(year)) {
+                return 29;
+            }
+            return DAYS_IN_MONTH[month - 1];
+        }
+
+        private static boolean isLeapYear(int year) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        }
+
+        /**
+         * Returns the number of days from 1970-01-01 to a date, valid for positive years.
+         */
+        static long toEpochDay(int year, int month, int day) {
+            int previousYear = year - 1;
+            long days = 365L * year + (previousYear + 4) / 4 - (previousYear + 100) / 100 + (previousYear + 400) / 400;
+            days += DAYS_BEFORE_MONTH[month - 1] + day - 1;
+            if (month > 2 && isLeapYear(year)) {
+                days++;
+            }
+            return days - DAYS_0000_TO_1970;
+        }
+
+        /**
+         * Returns the current year, the value is cached until the end of the year to avoid calendar lookups per field.
+         */
+        static int getCurrentYear() {
+            CurrentYear cached = currentYear;
+            long now = System.currentTimeMillis();
+            if (cached == null || now < cached.startMillis || now >= cached.endMillis) {
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTimeInMillis(now);
+                int year = calendar.get(Calendar.YEAR);
+                calendar.clear();
+                calendar.set(year, Calendar.JANUARY, 1);
+                long startMillis = calendar.getTimeInMillis();
+                calendar.set(year + 1, Calendar.JANUARY, 1);
+                cached = new CurrentYear(year, startMillis, calendar.getTimeInMillis());
+                currentYear = cached;
+            }
+            return cached.year;
+        }
+
+        private static final class CurrentYear {
+
+            private final int year;
+            private final long startMillis;
+            private final long endMillis;
+
+            private CurrentYear(int year, long startMillis, long endMillis) {
+                this.year = year;
+                this.startMillis = startMillis;
+                this.endMillis = endMillis;
+            }
         }
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+/**
+ * Support for the human readable interpretation of element strings, where each AI is written in parentheses followed
+ * by its data field, such as (01)09506000134352(17)201231(10)ABC. For AIs with a decimal point indicator the indicator
+ * is written as the last digit of the AI, as in (3103)000189.
+ * <p>
+ * Based on GS1 General Specifications, Release 17.0.1, section 4.15.
+ */
+public final class HumanReadableInterpretation {
+
+    private HumanReadableInterpretation() {
+    }
+
+    /**
+     * Parses a human readable interpretation into the same parse result as {@link ElementStrings#parse(String)}. A
+     * data field ends at the next opening parenthesis or at the end of the text.
+     * <p>
+     * On error returns a partial parse result containing what could be successfully parsed. The position reported is
+     * the zero-based index in the text of the AI.
+     */
+    public static ElementStrings.ParseResult parse(CharSequence text) {
+
+        if (text == null) {
+            throw new NullPointerException("Text must not be null");
+        }
+
+        ElementStrings.ParseResult result = new ElementStrings.ParseResult();
+        int length = text.length();
+        StringBuilder buffer = new StringBuilder();
+        ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader("");
+        int position = 0;
+        while (position < length) {
+            if (text.charAt(position) != '(') {
+                result.setError(ElementStrings.ParseError.MISSING_PARENTHESIS, 0, null, position);
+                return result;
+            }
+            int keyStart = position + 1;
+            int keyEnd = keyStart;
+            while (keyEnd < length && text.charAt(keyEnd) != ')' && text.charAt(keyEnd) != '(') {
+                keyEnd++;
+            }
+            if (keyEnd == length || text.charAt(keyEnd) != ')') {
+                result.setError(ElementStrings.ParseError.MISSING_PARENTHESIS, 0, null, keyEnd);
+                return result;
+            }
+            ApplicationIdentifierTable.Entry entry = ElementStrings.lookupWithDecimalPointIndicator(text, keyStart, keyEnd);
+            if (entry == null) {
+                result.setError(ElementStrings.ParseError.UNRECOGNIZED_AI, 0, null, keyStart);
+                return result;
+            }
+            int dataFieldStart = keyEnd + 1;
+            int dataFieldEnd = dataFieldStart;
+            while (dataFieldEnd < length && text.charAt(dataFieldEnd) != '(') {
+                dataFieldEnd++;
+            }
+
+            // The data field is copied so that a decimal point indicator written in the AI precedes it
+            buffer.setLength(0);
+            if (keyEnd - keyStart > entry.key.length()) {
+                buffer.append(text.charAt(keyEnd - 1));
+            }
+            buffer.append(text, dataFieldStart, dataFieldEnd);
+            reader.reset(buffer, 0, buffer.length());
+            int end = ElementStrings.readDataField(entry, reader);
+            if (end == -1) {
+                result.setError(reader.getError(), reader.getErrorLength(), entry.key, keyStart);
+                return result;
+            }
+            if (reader.remainingLength() != 0) {
+                result.setError(ElementStrings.ParseError.DATA_FIELD_TOO_LONG, ElementStrings.getMaxDataFieldLength(entry), entry.key, keyStart);
+                return result;
+            }
+            result.put(entry, ElementStrings.decodeDataField(entry, reader, 0, end));
+            position = dataFieldEnd;
+        }
+        return result;
+    }
+
+    /**
+     * Formats the elements of a parse result as a human readable interpretation, in the order they were parsed. Dates
+     * are written in the default time zone.
+     */
+    public static String format(ElementStrings.ParseResult result) {
+        return appendTo(new StringBuilder(), result).toString();
+    }
+
+    /**
+     * Appends the elements of a parse result as a human readable interpretation to a string builder.
+     *
+     * @see #format(ElementStrings.ParseResult)
+     */
+    public static StringBuilder appendTo(StringBuilder builder, ElementStrings.ParseResult result) {
+
+        if (builder == null) {
+            throw new NullPointerException("Builder must not be null");
+        }
+        if (result == null) {
+            throw new NullPointerException("Result must not be null");
+        }
+
+        for (int i = 0; i < result.getElementCount(); i++) {
+            ApplicationIdentifierTable.Entry entry = result.getEntry(i);
+            builder.append('(').append(entry.key);
+            int dataFieldStart = builder.length();
+            result.appendDataField(i, builder);
+            if (ElementStrings.hasDecimalPointIndicator(entry)) {
+                // Moves the decimal point indicator into the parentheses
+                builder.insert(dataFieldStart + 1, ')');
+            } else {
+                builder.insert(dataFieldStart, ')');
+            }
+        }
+        return builder;
+    }
+}
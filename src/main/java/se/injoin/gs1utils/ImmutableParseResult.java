@@ -0,0 +1,417 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a parse result, created with {@link ElementStrings.ParseResult#toImmutable()}. Instances are
+ * thread-safe and can be shared between threads or kept in caches without copying.
+ * <p>
+ * The data fields are stored as a single string and decoded when requested, so each call to a getter returning a
+ * date, a list or a map returns a new object that the caller is free to modify. Dates are captured as instants and
+ * epoch days when the snapshot is created, so they are not affected by later changes to the current year or the
+ * default time zone. The epoch and unscaled decimal accessors are computed without creating objects. Values of custom
+ * AIs with a decoder are decoded once and kept together with their data field, they are only as immutable as the
+ * objects returned by the decoder.
+ */
+public final class ImmutableParseResult {
+
+    private final String dataFields;
+    private final ApplicationIdentifierTable.Entry[] entries;
+    private final int[] dataFieldEnds;
+
+    // Values of custom AIs with a decoder by element index, null if there are none
+    private final Object[] decodedValues;
+
+    // Dates as milliseconds from the epoch and epoch days by element index, null if there are none. An element of
+    // AI 7007 has one or two dates, other elements have one.
+    private final long[][] dates;
+    private final long[] epochDays;
+
+    private final boolean partial;
+    private final SymbologyIdentifier symbologyIdentifier;
+    private final ElementStrings.ParseError[] errors;
+    private final String[] errorKeys;
+    private final int[] errorPositions;
+    private final String[] errorMessages;
+
+    ImmutableParseResult(ElementStrings.ParseResult result) {
+
+        int size = result.getElementCount();
+        StringBuilder builder = new StringBuilder();
+        entries = new ApplicationIdentifierTable.Entry[size];
+        dataFieldEnds = new int[size];
+        Object[] values = null;
+        long[][] instants = null;
+        long[] days = null;
+        for (int i = 0; i < size; i++) {
+            ApplicationIdentifierTable.Entry entry = result.getEntry(i);
+            entries[i] = entry;
+            int dataFieldStart = builder.length();
+            result.appendDataField(i, builder);
+            dataFieldEnds[i] = builder.length();
+            if (entry.decoder != null) {
+                if (values == null) {
+                    values = new Object[size];
+                }
+                values[i] = result.getObject(entry.key);
+            }
+            if (ElementStrings.getDateEnd(entry, dataFieldStart, dataFieldEnds[i]) != -1) {
+                if (instants == null) {
+                    instants = new long[size][];
+                    days = new long[size];
+                }
+                Object value = entry.decoder != null
+                        ? ElementStrings.decodeDataFieldInFormat(entry, new ElementStrings.SequenceReader(builder), dataFieldStart, dataFieldEnds[i])
+                        : result.getObject(entry.key);
+                instants[i] = toMillis(value);
+                days[i] = result.getEpochDay(entry.key);
+            }
+        }
+        dataFields = builder.toString();
+        decodedValues = values;
+        dates = instants;
+        epochDays = days;
+
+        partial = result.isPartial();
+        symbologyIdentifier = result.getSymbologyIdentifier();
+        int errorCount = result.getErrorCount();
+        errors = new ElementStrings.ParseError[errorCount];
+        errorKeys = new String[errorCount];
+        errorPositions = new int[errorCount];
+        errorMessages = new String[errorCount];
+        for (int i = 0; i < errorCount; i++) {
+            errors[i] = result.getError(i);
+            errorKeys[i] = result.getErrorKey(i);
+            errorPositions[i] = result.getErrorPosition(i);
+            errorMessages[i] = result.getErrorMessage(i);
+        }
+    }
+
+    public boolean contains(String key) {
+        return indexOf(key) != -1;
+    }
+
+    public boolean contains(ApplicationIdentifier identifier) {
+        return indexOf(identifier) != -1;
+    }
+
+    public String getString(ApplicationIdentifier identifier) {
+        return (String) get(indexOf(identifier));
+    }
+
+    public String getString(String key) {
+        return (String) get(indexOf(key));
+    }
+
+    /**
+     * Returns a date, a new instance on each call.
+     */
+    public Date getDate(ApplicationIdentifier identifier) {
+        return (Date) get(indexOf(identifier));
+    }
+
+    /**
+     * Returns a date, a new instance on each call.
+     */
+    public Date getDate(String key) {
+        return (Date) get(indexOf(key));
+    }
+
+    public BigDecimal getDecimal(ApplicationIdentifier identifier) {
+        return (BigDecimal) get(indexOf(identifier));
+    }
+
+    public BigDecimal getDecimal(String key) {
+        return (BigDecimal) get(indexOf(key));
+    }
+
+    /**
+     * @see ElementStrings.ParseResult#getEpochDay(ApplicationIdentifier)
+     */
+    public long getEpochDay(ApplicationIdentifier identifier) {
+        return toEpochDay(indexOf(identifier));
+    }
+
+    public long getEpochDay(String key) {
+        return toEpochDay(indexOf(key));
+    }
+
+    /**
+     * @see ElementStrings.ParseResult#getEpochSecond(ApplicationIdentifier)
+     */
+    public long getEpochSecond(ApplicationIdentifier identifier) {
+        return toEpochSecond(indexOf(identifier));
+    }
+
+    public long getEpochSecond(String key) {
+        return toEpochSecond(indexOf(key));
+    }
+
+    /**
+     * @see ElementStrings.ParseResult#getUnscaledDecimal(ApplicationIdentifier)
+     */
+    public long getUnscaledDecimal(ApplicationIdentifier identifier) {
+        return toUnscaledDecimal(indexOf(identifier));
+    }
+
+    public long getUnscaledDecimal(String key) {
+        return toUnscaledDecimal(indexOf(key));
+    }
+
+    /**
+     * @see ElementStrings.ParseResult#getDecimalScale(ApplicationIdentifier)
+     */
+    public int getDecimalScale(ApplicationIdentifier identifier) {
+        return toDecimalScale(indexOf(identifier));
+    }
+
+    public int getDecimalScale(String key) {
+        return toDecimalScale(indexOf(key));
+    }
+
+    /**
+     * Returns a list, a new instance on each call.
+     */
+    public List getList(ApplicationIdentifier identifier) {
+        return (List) get(indexOf(identifier));
+    }
+
+    /**
+     * Returns a list, a new instance on each call.
+     */
+    public List getList(String key) {
+        return (List) get(indexOf(key));
+    }
+
+    public Object getObject(String key) {
+        return get(indexOf(key));
+    }
+
+    public Object getObject(ApplicationIdentifier identifier) {
+        return get(indexOf(identifier));
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    public SymbologyIdentifier getSymbologyIdentifier() {
+        return symbologyIdentifier;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public ElementStrings.ParseError getError() {
+        return errors.length != 0 ? errors[0] : null;
+    }
+
+    public String getErrorKey() {
+        return errors.length != 0 ? errorKeys[0] : null;
+    }
+
+    public int getErrorPosition() {
+        return errors.length != 0 ? errorPositions[0] : -1;
+    }
+
+    public String getErrorMessage() {
+        return errors.length != 0 ? errorMessages[0] : null;
+    }
+
+    public int getErrorCount() {
+        return errors.length;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public ElementStrings.ParseError getError(int index) {
+        checkErrorIndex(index);
+        return errors[index];
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getErrorKey(int index) {
+        checkErrorIndex(index);
+        return errorKeys[index];
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getErrorPosition(int index) {
+        checkErrorIndex(index);
+        return errorPositions[index];
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getErrorMessage(int index) {
+        checkErrorIndex(index);
+        return errorMessages[index];
+    }
+
+    /**
+     * Returns the elements by AI in the order parsed. The map is unmodifiable, a new map with new values is built on
+     * each call.
+     */
+    public Map<String, Object> getElementsByString() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < entries.length; i++) {
+            map.put(entries[i].key, get(i));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns the elements by AI in the order parsed, excluding AIs without a constant in
+     * {@link ApplicationIdentifier}. The map is unmodifiable, a new map with new values is built on each call.
+     */
+    public Map<ApplicationIdentifier, Object> getElementsByEnum() {
+        Map<ApplicationIdentifier, Object> map = new LinkedHashMap<ApplicationIdentifier, Object>();
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].identifier != null) {
+                map.put(entries[i].identifier, get(i));
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].key.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(ApplicationIdentifier identifier) {
+        if (identifier == null) {
+            return -1;
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].identifier == identifier) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int dataFieldStart(int index) {
+        return index == 0 ? 0 : dataFieldEnds[index - 1];
+    }
+
+    private Object get(int index) {
+        if (index == -1) {
+            return null;
+        }
+        ApplicationIdentifierTable.Entry entry = entries[index];
+        if (entry.decoder != null) {
+            return decodedValues[index];
+        }
+        if (dates != null && dates[index] != null) {
+            long[] millis = dates[index];
+            if (entry.identifier == ApplicationIdentifier.HARVEST_DATE) {
+                return millis.length == 1
+                        ? Collections.singletonList(new Date(millis[0]))
+                        : Arrays.asList(new Date(millis[0]), new Date(millis[1]));
+            }
+            return new Date(millis[0]);
+        }
+        return ElementStrings.decodeDataField(entry, new ElementStrings.SequenceReader(dataFields), dataFieldStart(index), dataFieldEnds[index]);
+    }
+
+    private long toEpochDay(int index) {
+        if (index == -1) {
+            return ElementStrings.ParseResult.NO_DATE;
+        }
+        if (dates != null && dates[index] != null) {
+            return epochDays[index];
+        }
+        return ElementStrings.toEpochDay(ElementStrings.toFirstDate(decodeInFormat(index)));
+    }
+
+    private long toEpochSecond(int index) {
+        if (index == -1) {
+            return ElementStrings.ParseResult.NO_DATE;
+        }
+        if (dates != null && dates[index] != null) {
+            return Internals.floorDiv(dates[index][0], 1000L);
+        }
+        return ElementStrings.toEpochSecond(ElementStrings.toFirstDate(decodeInFormat(index)));
+    }
+
+    private long toUnscaledDecimal(int index) {
+        if (index == -1) {
+            return ElementStrings.ParseResult.NO_DECIMAL;
+        }
+        if (entries[index].format == ApplicationIdentifier.Format.DECIMAL) {
+            return new ElementStrings.SequenceReader(dataFields).decodeUnscaledDecimal(dataFieldStart(index) + 1, dataFieldEnds[index]);
+        }
+        return ((BigDecimal) decodeInFormat(index)).unscaledValue().longValue();
+    }
+
+    private int toDecimalScale(int index) {
+        if (index == -1) {
+            return -1;
+        }
+        if (entries[index].format == ApplicationIdentifier.Format.DECIMAL) {
+            return new ElementStrings.SequenceReader(dataFields).decodeDecimalScale(dataFieldStart(index));
+        }
+        return ((BigDecimal) decodeInFormat(index)).scale();
+    }
+
+    /**
+     * Decodes a data field ignoring the decoder of a custom AI, as done by the epoch and decimal accessors.
+     */
+    private Object decodeInFormat(int index) {
+        return ElementStrings.decodeDataFieldInFormat(entries[index], new ElementStrings.SequenceReader(dataFields), dataFieldStart(index), dataFieldEnds[index]);
+    }
+
+    /**
+     * Returns the instants of a decoded date or list of dates.
+     */
+    private static long[] toMillis(Object value) {
+        if (value instanceof List) {
+            List list = (List) value;
+            long[] millis = new long[list.size()];
+            for (int i = 0; i < millis.length; i++) {
+                millis[i] = ((Date) list.get(i)).getTime();
+            }
+            return millis;
+        }
+        return new long[]{((Date) value).getTime()};
+    }
+
+    private void checkErrorIndex(int index) {
+        if (index < 0 || index >= errors.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for " + errors.length + " errors");
+        }
+    }
+}
@@ -65,6 +65,47 @@ final class Internals {
         return true;
     }
 
+    static boolean isDigits(CharSequence s, int start, int end) {
+        if (s == null || start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + (off + len) + ") out of bounds for length " + length);
+        }
+    }
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    /**
+     * Converts a number of days from 1970-01-01 to a date in the proleptic gregorian calendar returned as
+     * year * 10000 + month * 100 + day.
+     */
+    static long toCivilDate(long epochDay) {
+        long days = epochDay + 719468;
+        long era = (days >= 0 ? days : days - 146096) / 146097;
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
     static String validateFormat(String type, int length, String s) {
         if (s == null) {
             throw new NullPointerException(type + " must not be null");
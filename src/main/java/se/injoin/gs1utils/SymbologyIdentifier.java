@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+/**
+ * Symbology identifiers transmitted by scanners before the data of symbols carrying GS1 element strings.
+ * <p>
+ * Based on GS1 General Specifications, Release 17.0.1, section 5.1.2.
+ */
+public enum SymbologyIdentifier {
+
+    /**
+     * GS1-128.
+     */
+    GS1_128("]C1"),
+
+    /**
+     * GS1 DataBar and GS1 Composite.
+     */
+    GS1_DATABAR("]e0"),
+
+    /**
+     * GS1 DataMatrix.
+     */
+    GS1_DATAMATRIX("]d2"),
+
+    /**
+     * GS1 QR Code.
+     */
+    GS1_QR_CODE("]Q3"),
+
+    /**
+     * GS1 DotCode.
+     */
+    GS1_DOTCODE("]J1");
+
+    static final char FLAG_CHARACTER = ']';
+    static final int LENGTH = 3;
+
+    private final String value;
+
+    SymbologyIdentifier(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the symbology identifier as transmitted, for instance "]C1".
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the symbology identifier for a code character and modifier character, or null if it is not one of the
+     * symbology identifiers for GS1 element strings.
+     */
+    static SymbologyIdentifier lookup(char codeCharacter, char modifierCharacter) {
+        for (SymbologyIdentifier identifier : values()) {
+            if (identifier.value.charAt(1) == codeCharacter && identifier.value.charAt(2) == modifierCharacter) {
+                return identifier;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * AIs loaded from a GS1 Barcode Syntax Dictionary, compiled into the same lookup table the parser uses. AIs in the
+ * dictionary that are defined in {@link ApplicationIdentifier} keep their definition, so values are decoded the same
+ * way as without a dictionary. Other AIs are added with the format given in the dictionary and are decoded as strings,
+ * except for six digit dates which are decoded as dates.
+ * <p>
+ * Each line of the dictionary holds an AI or a range of AIs, optional flags, the components of the data field and
+ * optional attributes, for example {@code 4300 ? X..35,pcenc req=00 # SHIP TO COMP}. Components are numeric (N) or
+ * alphanumeric (X, Y or Z) and either fixed length (N6) or variable length (X..35), in brackets if optional. Of the
+ * linters only the date linters, such as yymmdd, are applied. Attributes and comments are ignored.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @see ElementStringParser#setSyntaxDictionary(SyntaxDictionary)
+ */
+public final class SyntaxDictionary {
+
+    private final ApplicationIdentifierTable table;
+    private final Set<String> addedKeys;
+
+    private SyntaxDictionary(ApplicationIdentifierTable table, Set<String> addedKeys) {
+        this.table = table;
+        this.addedKeys = Collections.unmodifiableSet(addedKeys);
+    }
+
+    /**
+     * Loads a syntax dictionary from a reader. The reader is not closed.
+     *
+     * @throws IllegalArgumentException if a line is not a valid syntax dictionary entry
+     */
+    public static SyntaxDictionary load(Reader reader) throws IOException {
+
+        if (reader == null) {
+            throw new NullPointerException("Reader must not be null");
+        }
+
+        ApplicationIdentifierTable table = ApplicationIdentifierTable.STANDARD.copy();
+        Set<String> addedKeys = new LinkedHashSet<String>();
+        BufferedReader lines = new BufferedReader(reader);
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            try {
+                compile(line, table, addedKeys);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid syntax dictionary entry on line " + lineNumber + ", " + e.getMessage());
+            }
+        }
+        return new SyntaxDictionary(table, addedKeys);
+    }
+
+    /**
+     * Loads a syntax dictionary from a stream encoded as UTF-8, such as a resource. The stream is not closed.
+     *
+     * @throws IllegalArgumentException if a line is not a valid syntax dictionary entry
+     */
+    public static SyntaxDictionary load(InputStream in) throws IOException {
+
+        if (in == null) {
+            throw new NullPointerException("Stream must not be null");
+        }
+
+        return load(new InputStreamReader(in, "UTF-8"));
+    }
+
+    /**
+     * Loads a syntax dictionary from a file encoded as UTF-8.
+     *
+     * @throws IllegalArgumentException if a line is not a valid syntax dictionary entry
+     */
+    public static SyntaxDictionary load(File file) throws IOException {
+
+        if (file == null) {
+            throw new NullPointerException("File must not be null");
+        }
+
+        InputStream in = new FileInputStream(file);
+        try {
+            return load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns true if the AI is recognized, either because it is in the dictionary or because it is defined in
+     * {@link ApplicationIdentifier}. AIs with a decimal point indicator are given without the indicator, as in 310.
+     */
+    public boolean isDefined(String key) {
+        return key != null && Internals.isDigits(key) && table.get(key) != null;
+    }
+
+    /**
+     * Returns the keys of the AIs added by the dictionary, that is those not defined in {@link ApplicationIdentifier},
+     * in the order they appear in the dictionary.
+     */
+    public Set<String> getAddedKeys() {
+        return addedKeys;
+    }
+
+    ApplicationIdentifierTable getTable() {
+        return table;
+    }
+
+    private static void compile(String line, ApplicationIdentifierTable table, Set<String> addedKeys) {
+
+        int commentStart = line.indexOf('#');
+        String content = (commentStart != -1 ? line.substring(0, commentStart) : line).trim();
+        if (content.length() == 0) {
+            return;
+        }
+        String[] tokens = content.split("\\s+");
+
+        String[] keys = parseKeys(tokens[0]);
+        int i = 1;
+        if (i < tokens.length && isFlags(tokens[i])) {
+            i++;
+        }
+        List<ApplicationIdentifierTable.Component> components = new ArrayList<ApplicationIdentifierTable.Component>();
+        while (i < tokens.length && isComponent(tokens[i])) {
+            components.add(parseComponent(tokens[i]));
+            i++;
+        }
+        if (components.isEmpty()) {
+            throw new IllegalArgumentException("AI " + tokens[0] + " has no data field components");
+        }
+
+        for (String key : keys) {
+            if (table.addIfAbsent(createEntry(key, components))) {
+                addedKeys.add(key);
+            }
+        }
+    }
+
+    private static ApplicationIdentifierTable.Entry createEntry(String key, List<ApplicationIdentifierTable.Component> components) {
+
+        ApplicationIdentifierTable.Component first = components.get(0);
+        if (components.size() == 1 && !first.optional) {
+            boolean fixed = first.minLength == first.maxLength;
+            if (first.dateLength == 6 && first.maxLength == 6) {
+                return new ApplicationIdentifierTable.Entry(key, null, ApplicationIdentifier.Format.DATE, 6, 6);
+            }
+            if (first.dateLength == 0) {
+                ApplicationIdentifier.Format format = first.numeric
+                        ? (fixed ? ApplicationIdentifier.Format.NUMERIC_FIXED : ApplicationIdentifier.Format.NUMERIC_VARIABLE)
+                        : (fixed ? ApplicationIdentifier.Format.ALPHANUMERIC_FIXED : ApplicationIdentifier.Format.ALPHANUMERIC_VARIABLE);
+                return new ApplicationIdentifierTable.Entry(key, null, format, first.minLength, first.maxLength);
+            }
+        }
+
+        int minLength = 0;
+        int maxLength = 0;
+        for (ApplicationIdentifierTable.Component component : components) {
+            if (!component.optional) {
+                minLength += component.minLength;
+            }
+            maxLength += component.maxLength;
+        }
+        return new ApplicationIdentifierTable.Entry(key, null, ApplicationIdentifier.Format.CUSTOM, minLength, maxLength,
+                components.toArray(new ApplicationIdentifierTable.Component[components.size()]));
+    }
+
+    /**
+     * Parses an AI, such as 4300, or a range of AIs, such as 3100-3105.
+     */
+    private static String[] parseKeys(String token) {
+        int dash = token.indexOf('-');
+        String first = dash != -1 ? token.substring(0, dash) : token;
+        String last = dash != -1 ? token.substring(dash + 1) : token;
+        if (!Internals.isDigits(first) || !Internals.isDigits(last) || first.length() != last.length()
+                || first.length() < 2 || first.length() > ApplicationIdentifierTable.MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("invalid AI " + token);
+        }
+        int start = Integer.parseInt(first);
+        int end = Integer.parseInt(last);
+        if (start > end) {
+            throw new IllegalArgumentException("invalid AI range " + token);
+        }
+        String[] keys = new String[end - start + 1];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Internals.leftPadWithZeroes(Integer.toString(start + i), first.length());
+        }
+        return keys;
+    }
+
+    private static boolean isFlags(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c != '*' && c != '?' && c != '!') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isComponent(String token) {
+        char c = token.charAt(0);
+        return c == '[' || c == 'N' || c == 'X' || c == 'Y' || c == 'Z';
+    }
+
+    /**
+     * Parses a component, such as N6,yymmdd or [X..20].
+     */
+    private static ApplicationIdentifierTable.Component parseComponent(String token) {
+
+        boolean optional = token.startsWith("[");
+        if (optional && !token.endsWith("]")) {
+            throw new IllegalArgumentException("invalid component " + token);
+        }
+        String[] parts = (optional ? token.substring(1, token.length() - 1) : token).split(",");
+        String specification = parts[0];
+        if (specification.length() < 2 || "NXYZ".indexOf(specification.charAt(0)) == -1) {
+            throw new IllegalArgumentException("invalid component " + token);
+        }
+
+        boolean numeric = specification.charAt(0) == 'N';
+        String length = specification.substring(1);
+        int separator = length.indexOf("..");
+        String minLength = separator != -1 ? length.substring(0, separator) : length;
+        String maxLength = separator != -1 ? length.substring(separator + 2) : length;
+        if (separator == 0) {
+            minLength = "1";
+        }
+        if (!Internals.isDigits(minLength) || !Internals.isDigits(maxLength)) {
+            throw new IllegalArgumentException("invalid component " + token);
+        }
+        int min = Integer.parseInt(minLength);
+        int max = Integer.parseInt(maxLength);
+        if (min < 1 || min > max || max > 90) {
+            throw new IllegalArgumentException("invalid component " + token);
+        }
+
+        int dateLength = 0;
+        for (int i = 1; i < parts.length; i++) {
+            String linter = parts[i];
+            if (numeric && isDateLinter(linter) && linter.length() <= min) {
+                dateLength = linter.length();
+            }
+        }
+        return new ApplicationIdentifierTable.Component(numeric, min, max, optional, dateLength);
+    }
+
+    private static boolean isDateLinter(String linter) {
+        return linter.equals("yymmdd") || linter.equals("yymmd0") || linter.equals("yymmddhh")
+                || linter.equals("yymmddhhmm") || linter.equals("yymmddhhmmss");
+    }
+}
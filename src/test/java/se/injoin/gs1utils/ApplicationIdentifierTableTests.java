@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ApplicationIdentifierTableTests {
+
+    private static final ApplicationIdentifierTable TABLE = ApplicationIdentifierTable.STANDARD;
+
+    @Test
+    public void testLookupResolvesAllConstants() {
+        for (ApplicationIdentifier identifier : ApplicationIdentifier.values()) {
+            String sequence = identifier.getKey() + "123";
+            ApplicationIdentifierTable.Entry entry = TABLE.lookup(sequence, 0, sequence.length());
+            assertNotNull(identifier.name(), entry);
+            assertEquals(identifier.getKey(), entry.key);
+            assertEquals(identifier.getFormat(), entry.format);
+            assertEquals(identifier.getMinLength(), entry.minLength);
+            assertEquals(identifier.getMaxLength(), entry.maxLength);
+        }
+    }
+
+    @Test
+    public void testLookupPrefersFirstDeclaredConstantOnDuplicateKey() {
+        assertSame(ApplicationIdentifier.FUNCTIONAL_STATUS, TABLE.lookup("7021", 0, 4).identifier);
+    }
+
+    @Test
+    public void testLookupAtPosition() {
+        String sequence = "0197311876341811310300752015170809";
+        assertSame(ApplicationIdentifier.GTIN, TABLE.lookup(sequence, 0, sequence.length()).identifier);
+        assertSame(ApplicationIdentifier.ITEM_NET_WEIGHT_KG, TABLE.lookup(sequence, 16, sequence.length()).identifier);
+        assertSame(ApplicationIdentifier.BEST_BEFORE_DATE, TABLE.lookup(sequence, 26, sequence.length()).identifier);
+    }
+
+    @Test
+    public void testLookupNumberOfProcessor() {
+        for (int i = 0; i <= 9; i++) {
+            ApplicationIdentifierTable.Entry entry = TABLE.lookup("703" + i + "111", 0, 7);
+            assertEquals("703" + i, entry.key);
+            assertNull(entry.identifier);
+            assertEquals(ApplicationIdentifier.Format.CUSTOM, entry.format);
+        }
+    }
+
+    @Test
+    public void testLookupNhrn() {
+        for (int i = 0; i <= 9; i++) {
+            ApplicationIdentifierTable.Entry entry = TABLE.lookup("71" + i + "ABC", 0, 6);
+            assertEquals("71" + i, entry.key);
+            assertNull(entry.identifier);
+            assertEquals(20, entry.maxLength);
+        }
+    }
+
+    @Test
+    public void testLookupCompanyInternalInformation() {
+        assertSame(ApplicationIdentifier.MUTUALLY_AGREED_INFORMATION, TABLE.lookup("90ABC", 0, 5).identifier);
+        for (int i = 1; i <= 9; i++) {
+            ApplicationIdentifierTable.Entry entry = TABLE.lookup("9" + i + "ABC", 0, 5);
+            assertEquals("9" + i, entry.key);
+            assertNull(entry.identifier);
+            assertEquals(30, entry.maxLength);
+        }
+    }
+
+    @Test
+    public void testLookupReturnsNullOnUnknownAI() {
+        assertNull(TABLE.lookup("05123", 0, 5));
+        assertNull(TABLE.lookup("7000123", 0, 7));
+        assertNull(TABLE.lookup(" 00123", 0, 6));
+        assertNull(TABLE.lookup("70X0123", 0, 7));
+    }
+
+    @Test
+    public void testLookupDoesNotReadBeyondEnd() {
+        assertNull(TABLE.lookup("703", 0, 3));
+        assertNull(TABLE.lookup("7030", 0, 3));
+        assertNull(TABLE.lookup("0", 0, 1));
+        assertNull(TABLE.lookup("", 0, 0));
+    }
+}
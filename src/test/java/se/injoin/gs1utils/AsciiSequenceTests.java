@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class AsciiSequenceTests {
+
+    @Test
+    public void testByteArray() {
+        AsciiSequence sequence = new AsciiSequence(new byte[]{'0', '1', 0x1D, (byte) 0xFF});
+        assertEquals(4, sequence.length());
+        assertEquals('0', sequence.charAt(0));
+        assertEquals('\u001D', sequence.charAt(2));
+        assertEquals('ÿ', sequence.charAt(3));
+        assertEquals("1\u001D", sequence.subSequence(1, 3));
+        assertEquals("01\u001Dÿ", sequence.toString());
+    }
+
+    @Test
+    public void testHeapByteBufferSliceUsesArrayOffset() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{'X', 'A', 'B', 'C'});
+        buffer.position(1);
+        AsciiSequence sequence = new AsciiSequence(buffer.slice());
+        assertEquals(3, sequence.length());
+        assertEquals('A', sequence.charAt(0));
+        assertEquals("BC", sequence.subSequence(1, 3));
+    }
+
+    @Test
+    public void testDirectByteBufferUsesAbsoluteIndexes() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        buffer.put(new byte[]{'A', 'B', 'C'});
+        buffer.flip();
+        buffer.position(2);
+        AsciiSequence sequence = new AsciiSequence(buffer);
+        assertEquals(3, sequence.length());
+        assertEquals('A', sequence.charAt(0));
+        assertEquals("ABC", sequence.toString());
+        assertEquals(2, buffer.position());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCharAtThrowsBeyondLength() {
+        new AsciiSequence(new byte[]{'A'}).charAt(1);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AssociationRulesTests {
+
+    @Test
+    public void testValidCombinations() {
+        assertValid("0197311876341811" + "3103000752" + "15170809" + "10ABC");
+        assertValid("00106141412345678908" + "0217300327560004" + "3712\u001D" + "15170809");
+        assertValid("0197311876341811" + "21XYZ\u001D" + "250ABC");
+        assertValid("414" + "9520123456788" + "254ABC");
+        assertValid("0199506000134352" + "39221995");
+        assertValid("0109506000134352" + "39221995\u001D" + "8005000250");
+        assertValid("00376104250021234569" + "3301001234");
+        assertValid("00376104250021234569" + "3430000250" + "3551000040" + "3631000120");
+        assertValid("0197311876341811" + "3301001234");
+        assertValid("415" + "5412345678908" + "8020ABC123\u001D" + "12170809");
+    }
+
+    @Test
+    public void testMissingAssociatedAI() {
+        assertInvalid("0217300327560004", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "02", "AI 02 requires AI 37");
+        assertInvalid("10ABC", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "10", "AI 10 requires AIs 01, 02 or 8006");
+        assertInvalid("3103000752", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "310", "AI 310 requires AIs 01 or 02");
+        assertInvalid("00376104250021234569" + "3103000752", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "310", "AI 310 requires AIs 01 or 02");
+        assertInvalid("3301001234", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "330", "AI 330 requires AIs 00, 01 or 02");
+        assertInvalid("00376104250021234569" + "3370000250", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "337", "AI 337 requires AIs 01 or 02");
+        assertInvalid("12170809", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "12", "AI 12 requires AI 8020");
+        assertInvalid("0197311876341811" + "250ABC", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "250", "AI 250 requires AI 21");
+        assertInvalid("0109506000134352" + "39221995", ElementStrings.ParseError.MISSING_ASSOCIATED_AI, "392", "AI 392 requires AI 8005 or a variable measure GTIN");
+    }
+
+    @Test
+    public void testInvalidCombination() {
+        assertInvalid("0197311876341811" + "0217300327560004" + "3712", ElementStrings.ParseError.INVALID_AI_COMBINATION, "01", "AI 01 must not be used together with AI 02");
+        assertInvalid("420ABC\u001D" + "421752123", ElementStrings.ParseError.INVALID_AI_COMBINATION, "420", "AI 420 must not be used together with AI 421");
+    }
+
+    @Test
+    public void testDuplicateAI() {
+        assertInvalid("0197311876341811" + "10ABC\u001D" + "10DEF", ElementStrings.ParseError.DUPLICATE_AI, "10", "AI 10 is repeated");
+
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+        ElementStrings.ParseResult result = parser.parse("0197311876341811" + "15170809");
+        assertNotNull(result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertTrue(result.validateAssociations());
+        result = parser.parse("0197311876341811" + "0197311876341811");
+        assertFalse(result.validateAssociations());
+        assertEquals(ElementStrings.ParseError.DUPLICATE_AI, result.getError());
+    }
+
+    @Test
+    public void testNotValidatedWhenParsingFailed() {
+        ElementStrings.ParseResult result = ElementStrings.parse("10ABC\u001D" + "15171309");
+        assertFalse(result.validateAssociations());
+        assertEquals(ElementStrings.ParseError.INVALID_DATE, result.getError());
+    }
+
+    @Test
+    public void testContains() {
+        ElementStrings.ParseResult result = ElementStrings.parse("0197311876341811" + "7030111ABC");
+        assertTrue(result.contains(ApplicationIdentifier.GTIN));
+        assertFalse(result.contains(ApplicationIdentifier.SSCC));
+        assertFalse(result.contains((ApplicationIdentifier) null));
+        result.reset();
+        assertFalse(result.contains(ApplicationIdentifier.GTIN));
+    }
+
+    private static void assertValid(String sequence) {
+        ElementStrings.ParseResult result = ElementStrings.parse(sequence);
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertTrue(result.getErrorMessage(), result.validateAssociations());
+        assertNull(result.getError());
+    }
+
+    private static void assertInvalid(String sequence, ElementStrings.ParseError error, String key, String message) {
+        ElementStrings.ParseResult result = ElementStrings.parse(sequence);
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertFalse(result.validateAssociations());
+        assertTrue(result.isPartial());
+        assertEquals(error, result.getError());
+        assertEquals(key, result.getErrorKey());
+        assertEquals(-1, result.getErrorPosition());
+        assertEquals(message, result.getErrorMessage());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchParseResultTests {
+
+    private static final List<String> SEQUENCES = Arrays.asList(
+            "0197311876341811310300752015170809",
+            "011730032756000410170522243\u001D17170619",
+            "0197311876341811" + "05123",
+            "7030111ABC\u001D3902789");
+
+    @Test
+    public void testParseBatch() {
+        BatchParseResult result = ElementStrings.parseBatch(SEQUENCES);
+        assertEquals(4, result.getRowCount());
+
+        List<String> keys = new ArrayList<String>();
+        for (BatchParseResult.Column column : result.getColumns()) {
+            keys.add(column.getKey());
+        }
+        assertEquals(Arrays.asList("01", "310", "15", "10", "17", "7030", "390"), keys);
+
+        BatchParseResult.Column gtin = result.getColumn(ApplicationIdentifier.GTIN);
+        assertEquals(3, gtin.getCount());
+        assertEquals("97311876341811", gtin.getString(0));
+        assertEquals("17300327560004", gtin.getString(1));
+        assertEquals("97311876341811", gtin.getString(2));
+        assertFalse(gtin.isPresent(3));
+        assertNull(gtin.getString(3));
+
+        BatchParseResult.Column weight = result.getColumn("310");
+        assertEquals(new BigDecimal("7.520"), weight.getDecimal(0));
+        assertEquals(7520, weight.getUnscaledDecimal(0));
+        assertEquals(3, weight.getDecimalScale(0));
+        assertEquals(ElementStrings.ParseResult.NO_DECIMAL, weight.getUnscaledDecimal(1));
+
+        BatchParseResult.Column bestBefore = result.getColumn(ApplicationIdentifier.BEST_BEFORE_DATE);
+        assertEquals(ElementStrings.parse(SEQUENCES.get(0)).getDate(ApplicationIdentifier.BEST_BEFORE_DATE), bestBefore.getDate(0));
+        assertEquals(17387, bestBefore.getEpochDay(0));
+        assertEquals(ElementStrings.ParseResult.NO_DATE, bestBefore.getEpochDay(1));
+
+        BatchParseResult.Column processor = result.getColumn("7030");
+        assertNull(processor.getIdentifier());
+        assertEquals(Arrays.asList("111", "ABC"), processor.getList(3));
+        assertEquals(new BigDecimal("7.89"), result.getColumn(ApplicationIdentifier.AMOUNT_PAYABLE).getDecimal(3));
+
+        assertNull(result.getColumn(ApplicationIdentifier.SSCC));
+        assertNull(result.getColumn("00"));
+    }
+
+    @Test
+    public void testParseBatchReportsErrorsPerRow() {
+        BatchParseResult result = ElementStrings.parseBatch(SEQUENCES);
+        assertFalse(result.isPartial(0));
+        assertNull(result.getError(1));
+        assertEquals(-1, result.getErrorPosition(1));
+        assertTrue(result.isPartial(2));
+        assertEquals(ElementStrings.ParseError.UNRECOGNIZED_AI, result.getError(2));
+        assertEquals(16, result.getErrorPosition(2));
+        assertFalse(result.isPartial(3));
+    }
+
+    @Test
+    public void testParseBatchMatchesParse() {
+        List<String> sequences = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            sequences.add(SEQUENCES.get(i % SEQUENCES.size()));
+        }
+        BatchParseResult result = ElementStrings.parseBatch(sequences);
+        for (int row = 0; row < sequences.size(); row++) {
+            ElementStrings.ParseResult expected = ElementStrings.parse(sequences.get(row));
+            for (BatchParseResult.Column column : result.getColumns()) {
+                assertEquals(expected.getObject(column.getKey()), column.getObject(row));
+            }
+            assertEquals(expected.getError(), result.getError(row));
+        }
+    }
+
+    @Test
+    public void testSparseColumn() {
+        List<String> sequences = new ArrayList<String>();
+        for (int row = 0; row < 1000; row++) {
+            sequences.add(row % 100 == 7 ? "10LOT" + row : "0197311876341811");
+        }
+        // A repeated AI replaces the earlier data field, the same as in a parse result
+        sequences.set(500, "10A\u001D" + "10B");
+        BatchParseResult result = ElementStrings.parseBatch(sequences);
+
+        BatchParseResult.Column lot = result.getColumn(ApplicationIdentifier.BATCH_OR_LOT_NUMBER);
+        assertEquals(11, lot.getCount());
+        for (int row = 0; row < 1000; row++) {
+            assertEquals(row % 100 == 7 || row == 500, lot.isPresent(row));
+            assertEquals(ElementStrings.parse(sequences.get(row)).getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER), lot.getString(row));
+        }
+        assertEquals("B", lot.getString(500));
+        assertEquals(989, result.getColumn(ApplicationIdentifier.GTIN).getCount());
+    }
+
+    @Test
+    public void testParseEmptyBatch() {
+        BatchParseResult result = ElementStrings.parseBatch(Collections.<String>emptyList());
+        assertEquals(0, result.getRowCount());
+        assertTrue(result.getColumns().isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRowOutOfBounds() {
+        ElementStrings.parseBatch(SEQUENCES).getError(4);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testParseBatchThrowsNPEOnNullSequence() {
+        ElementStrings.parseBatch(Arrays.asList("0197311876341811", null));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CustomApplicationIdentifiersTests {
+
+    private static final CustomApplicationIdentifiers.Decoder PALLET_POSITION = new CustomApplicationIdentifiers.Decoder() {
+        public Object decode(String key, String dataField) {
+            return Arrays.asList(Integer.valueOf(dataField.substring(0, 2)), Integer.valueOf(dataField.substring(2)));
+        }
+    };
+
+    @Test
+    public void testParseWithCustomAIs() {
+        CustomApplicationIdentifiers custom = new CustomApplicationIdentifiers.Builder()
+                .define("91", ApplicationIdentifier.Format.NUMERIC_FIXED, 4, 4, PALLET_POSITION)
+                .define("92", ApplicationIdentifier.Format.DATE, 6, 6)
+                .define("4399", ApplicationIdentifier.Format.ALPHANUMERIC_VARIABLE, 1, 10)
+                .build();
+        assertEquals(Arrays.asList("91", "92", "4399"), new ArrayList<String>(custom.getKeys()));
+
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCustomApplicationIdentifiers(custom);
+        assertSame(custom, parser.getCustomApplicationIdentifiers());
+
+        ElementStrings.ParseResult result = parser.parse("0109506000134352" + "910312" + "92171231" + "4399ABC\u001D" + "10LOT");
+        assertFalse(result.isPartial());
+        assertEquals(Arrays.asList(3, 12), result.getObject("91"));
+        assertEquals(17531, result.getEpochDay("92"));
+        assertEquals("ABC", result.getString("4399"));
+        assertEquals("LOT", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+
+        // The data field is validated before it is decoded
+        result = parser.parse("9103AB");
+        assertEquals("Error parsing data field for AI 91 at position 0, data field must be numeric", result.getErrorMessage());
+        result = parser.parse("4398AB");
+        assertEquals("Unrecognized AI at position 0", result.getErrorMessage());
+
+        parser.setCustomApplicationIdentifiers(null);
+        assertEquals("0312", parser.parse("910312").getString("91"));
+    }
+
+    @Test
+    public void testLazyDecoding() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+        parser.setCustomApplicationIdentifiers(new CustomApplicationIdentifiers.Builder()
+                .define("91", ApplicationIdentifier.Format.NUMERIC_FIXED, 4, 4, PALLET_POSITION)
+                .build());
+        assertEquals(Arrays.asList(3, 12), parser.parse("910312").getObject("91"));
+    }
+
+    @Test
+    public void testDecimal() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCustomApplicationIdentifiers(new CustomApplicationIdentifiers.Builder()
+                .define("436", ApplicationIdentifier.Format.DECIMAL, 1, 8)
+                .build());
+        assertEquals(new BigDecimal("12.5"), parser.parse("4361125").getDecimal("436"));
+    }
+
+    @Test
+    public void testFormatHumanReadableInterpretation() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCustomApplicationIdentifiers(new CustomApplicationIdentifiers.Builder()
+                .define("91", ApplicationIdentifier.Format.NUMERIC_FIXED, 4, 4, new CustomApplicationIdentifiers.Decoder() {
+                    public Object decode(String key, String dataField) {
+                        return new Object();
+                    }
+                })
+                .build());
+        for (boolean lazyDecoding : new boolean[]{false, true}) {
+            parser.setLazyDecoding(lazyDecoding);
+            ElementStrings.ParseResult result = parser.parse("910312");
+            result.getObject("91");
+            assertEquals("(91)0312", HumanReadableInterpretation.format(result));
+        }
+    }
+
+    @Test
+    public void testAccessorsIgnoreDecoder() {
+        CustomApplicationIdentifiers.Decoder decoder = new CustomApplicationIdentifiers.Decoder() {
+            public Object decode(String key, String dataField) {
+                return "decoded " + dataField;
+            }
+        };
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCustomApplicationIdentifiers(new CustomApplicationIdentifiers.Builder()
+                .define("92", ApplicationIdentifier.Format.DATE, 6, 6, decoder)
+                .define("436", ApplicationIdentifier.Format.DECIMAL, 1, 8, decoder)
+                .build());
+        for (boolean lazyDecoding : new boolean[]{false, true}) {
+            parser.setLazyDecoding(lazyDecoding);
+            ElementStrings.ParseResult result = parser.parse("92171231" + "4361125");
+            assertEquals(17531, result.getEpochDay("92"));
+            assertEquals(125, result.getUnscaledDecimal("436"));
+            assertEquals(1, result.getDecimalScale("436"));
+            assertEquals("decoded 171231", result.getObject("92"));
+
+            ImmutableParseResult snapshot = result.toImmutable();
+            assertEquals(17531, snapshot.getEpochDay("92"));
+            assertEquals(125, snapshot.getUnscaledDecimal("436"));
+            assertEquals("decoded 1125", snapshot.getObject("436"));
+        }
+    }
+
+    @Test
+    public void testBuildFromSyntaxDictionary() throws IOException {
+        SyntaxDictionary dictionary = SyntaxDictionary.load(new StringReader("4307 ? X2,iso3166alpha2 req=00\n"));
+        ElementStringParser parser = new ElementStringParser();
+        parser.setSyntaxDictionary(dictionary);
+        parser.setCustomApplicationIdentifiers(new CustomApplicationIdentifiers.Builder(dictionary)
+                .define("4307", ApplicationIdentifier.Format.ALPHANUMERIC_VARIABLE, 1, 3)
+                .define("91", ApplicationIdentifier.Format.NUMERIC_VARIABLE, 1, 4)
+                .build());
+        assertEquals("SWE", parser.parse("4307SWE\u001D" + "9112").getString("4307"));
+        assertEquals("12", parser.parse("4307SWE\u001D" + "9112").getString("91"));
+
+        parser.setCustomApplicationIdentifiers(null);
+        assertTrue(parser.parse("4307SWE").isPartial());
+    }
+
+    @Test
+    public void testBuilderIsIndependentOfBuiltInstance() {
+        CustomApplicationIdentifiers.Builder builder = new CustomApplicationIdentifiers.Builder();
+        CustomApplicationIdentifiers first = builder.define("91", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2).build();
+        builder.define("92", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2);
+        assertEquals(1, first.getKeys().size());
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCustomApplicationIdentifiers(first);
+        assertEquals("123", parser.parse("92123").getString("92"));
+    }
+
+    @Test
+    public void testDefineThrowsOnInvalidDefinitions() {
+        assertDefineThrows("Invalid AI 9", "9", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2);
+        assertDefineThrows("Invalid AI 9A", "9A", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2);
+        assertDefineThrows("Invalid AI 91234", "91234", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2);
+        assertDefineThrows("AI 01 is defined in ApplicationIdentifier", "01", ApplicationIdentifier.Format.NUMERIC_FIXED, 14, 14);
+        assertDefineThrows("AI 9123 conflicts with another AI", "9123", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2);
+        assertDefineThrows("AI 70 conflicts with another AI", "70", ApplicationIdentifier.Format.NUMERIC_FIXED, 2, 2);
+        assertDefineThrows("Invalid length 0..2 for AI 91", "91", ApplicationIdentifier.Format.NUMERIC_VARIABLE, 0, 2);
+        assertDefineThrows("Invalid length 2..91 for AI 91", "91", ApplicationIdentifier.Format.NUMERIC_VARIABLE, 2, 91);
+        assertDefineThrows("Invalid length 1..2 for AI 91 of fixed length", "91", ApplicationIdentifier.Format.ALPHANUMERIC_FIXED, 1, 2);
+        assertDefineThrows("Invalid length 8..8 for AI 91, dates are six digits", "91", ApplicationIdentifier.Format.DATE, 8, 8);
+        assertDefineThrows("Invalid AI 91, AIs with a decimal point indicator have three digits", "91", ApplicationIdentifier.Format.DECIMAL, 1, 6);
+        assertDefineThrows("Format CUSTOM is not supported for AI 91", "91", ApplicationIdentifier.Format.CUSTOM, 1, 6);
+    }
+
+    private void assertDefineThrows(String message, String key, ApplicationIdentifier.Format format, int minLength, int maxLength) {
+        try {
+            new CustomApplicationIdentifiers.Builder().define(key, format, minLength, maxLength);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class DigitalLinkBuilderTests {
+
+    @Test
+    public void testPrimaryKeyAndQualifiersInPathOrder() {
+        DigitalLinkBuilder builder = new DigitalLinkBuilder()
+                .add(ApplicationIdentifier.EXPIRATION_DATE, "201231")
+                .add(ApplicationIdentifier.SERIAL_NUMBER, "XYZ")
+                .add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "ABC")
+                .add(ApplicationIdentifier.GTIN, "09506000134352")
+                .add(ApplicationIdentifier.ITEM_NET_WEIGHT_KG, "3000189");
+        assertEquals("https://id.gs1.org/01/09506000134352/10/ABC/21/XYZ?17=201231&3103=000189", builder.toString());
+        assertEquals("https://example.com/path/01/09506000134352/10/ABC/21/XYZ?17=201231&3103=000189", builder.toString("https://example.com/path/"));
+    }
+
+    @Test
+    public void testOtherPrimaryKeys() {
+        assertEquals("https://id.gs1.org/414/9520123456788/254/32a%2Fb", new DigitalLinkBuilder()
+                .add("254", "32a/b")
+                .add(ApplicationIdentifier.PHYSICAL_LOCATION, "9520123456788")
+                .toString());
+        assertEquals("https://id.gs1.org/00/106141412345678908?02=00614141123452", new DigitalLinkBuilder()
+                .add(ApplicationIdentifier.SSCC, "106141412345678908")
+                .add("02", "00614141123452")
+                .toString());
+    }
+
+    @Test
+    public void testPercentEncodesOnlyReservedCharacters() {
+        assertEquals("https://id.gs1.org/01/09506000134352/10/A-B.C_%2B%25%26%3F%2F%22?91=x%3Dy", new DigitalLinkBuilder()
+                .add(ApplicationIdentifier.GTIN, "09506000134352")
+                .add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "A-B.C_+%&?/\"")
+                .add("91", "x=y")
+                .toString());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String uri = new DigitalLinkBuilder()
+                .add(ApplicationIdentifier.GTIN, "09506000134352")
+                .add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "AB/C%D+")
+                .add(ApplicationIdentifier.AMOUNT_PAYABLE, "2995")
+                .add("7030", "111ABC")
+                .toString();
+        ElementStrings.ParseResult result = DigitalLink.parse(uri);
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals("09506000134352", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals("AB/C%D+", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals(new BigDecimal("9.95"), result.getDecimal(ApplicationIdentifier.AMOUNT_PAYABLE));
+        assertEquals(ElementStrings.parse("7030111ABC").getObject("7030"), result.getObject("7030"));
+    }
+
+    @Test
+    public void testAppendToAndReset() {
+        DigitalLinkBuilder builder = new DigitalLinkBuilder();
+        StringBuilder uris = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            builder.reset().add(ApplicationIdentifier.GTIN, "09506000134352").add(ApplicationIdentifier.SERIAL_NUMBER, Integer.toString(i));
+            builder.appendTo(uris, "https://example.com").append('\n');
+        }
+        assertEquals("https://example.com/01/09506000134352/21/0\n"
+                + "https://example.com/01/09506000134352/21/1\n"
+                + "https://example.com/01/09506000134352/21/2\n", uris.toString());
+    }
+
+    @Test
+    public void testInvalidValues() {
+        DigitalLinkBuilder builder = new DigitalLinkBuilder().add(ApplicationIdentifier.GTIN, "09506000134352");
+        assertInvalid(builder, ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "123456789012345678901", "Invalid data field for AI 10, data field must be at most 20 characters long");
+        assertInvalid(builder, ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "A B", "Invalid data field for AI 10, invalid character at index 1");
+        assertInvalid(builder, ApplicationIdentifier.EXPIRATION_DATE, "201331", "Invalid data field for AI 17, invalid date");
+        assertInvalid(builder, ApplicationIdentifier.GTIN, "09506000134352", "Duplicate AI 01");
+        assertEquals("https://id.gs1.org/01/09506000134352", builder.toString());
+    }
+
+    @Test
+    public void testRequiresExactlyOnePrimaryKey() {
+        try {
+            new DigitalLinkBuilder().add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "ABC").toString();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("No primary key", e.getMessage());
+        }
+        try {
+            new DigitalLinkBuilder().add(ApplicationIdentifier.GTIN, "09506000134352").add(ApplicationIdentifier.SSCC, "106141412345678908").toString();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Multiple primary keys 01 and 00", e.getMessage());
+        }
+    }
+
+    private static void assertInvalid(DigitalLinkBuilder builder, ApplicationIdentifier identifier, String value, String message) {
+        try {
+            builder.add(identifier, value);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DigitalLinkTests {
+
+    @Test
+    public void testParse() {
+        ElementStrings.ParseResult result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/ABC?17=201231");
+        assertFalse(result.isPartial());
+        assertEquals(Arrays.asList("01", "10", "17"), new ArrayList<String>(result.getElementsByString().keySet()));
+        assertEquals("09506000134352", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals(ElementStrings.parse("17201231").getDate(ApplicationIdentifier.EXPIRATION_DATE), result.getDate(ApplicationIdentifier.EXPIRATION_DATE));
+    }
+
+    @Test
+    public void testParseMatchesElementStrings() {
+        ElementStrings.ParseResult expected = ElementStrings.parse("0109506000134352" + "3103000189" + "3922995\u001D" + "7030111ABC\u001D" + "21XYZ");
+        assertFalse(expected.isPartial());
+        ElementStrings.ParseResult result = DigitalLink.parse("https://example.com/01/09506000134352/21/XYZ?3103=000189&3922=995&7030=111ABC");
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals(expected.getElementsByString().size(), result.getElementsByString().size());
+        for (String key : expected.getElementsByString().keySet()) {
+            assertEquals(key, expected.getObject(key), result.getObject(key));
+        }
+        assertEquals(new BigDecimal("0.189"), result.getDecimal("310"));
+    }
+
+    @Test
+    public void testParseWithPathPrefixAndOtherQueryParameters() {
+        ElementStrings.ParseResult result = DigitalLink.parse("https://brand.example.com/some/path/01/09506000134352/?linkType=gs1:pip&10=ABC#fragment");
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals("09506000134352", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals(2, result.getElementsByString().size());
+    }
+
+    @Test
+    public void testParsePercentEncodedValue() {
+        ElementStrings.ParseResult result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/AB%2FC%25D%2b");
+        assertFalse(result.isPartial());
+        assertEquals("AB/C%D+", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+    }
+
+    @Test
+    public void testParsePadsShortGtin() {
+        assertEquals("00000095060001", DigitalLink.parse("https://id.gs1.org/01/95060001").getString(ApplicationIdentifier.GTIN));
+        assertEquals("00614141123452", DigitalLink.parse("https://id.gs1.org/01/614141123452").getString(ApplicationIdentifier.GTIN));
+        assertEquals("09506000134352", DigitalLink.parse("https://id.gs1.org/01/9506000134352").getString(ApplicationIdentifier.GTIN));
+    }
+
+    @Test
+    public void testParseFailsOnInvalidDataField() {
+        ElementStrings.ParseResult result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/ABC?17=201331");
+        assertTrue(result.isPartial());
+        assertEquals(2, result.getElementsByString().size());
+        assertEquals(ElementStrings.ParseError.INVALID_DATE, result.getError());
+        assertEquals("17", result.getErrorKey());
+        assertEquals("Error parsing data field for AI 17 at position 44, invalid date", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/0950600013435X");
+        assertEquals("Error parsing data field for AI 01 at position 19, data field must be numeric", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/095060001343521");
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_TOO_LONG, result.getError());
+        assertEquals("Error parsing data field for AI 01 at position 19, data field must be at most 14 characters long", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352?7003=17050112345");
+        assertEquals("Error parsing data field for AI 7003 at position 37, data field must be at most 10 characters long", result.getErrorMessage());
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352?8008=1705011030001");
+        assertEquals("Error parsing data field for AI 8008 at position 37, data field must be at most 12 characters long", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/AB%1DCD");
+        assertEquals(ElementStrings.ParseError.INVALID_CHARACTER, result.getError());
+        assertEquals("Error parsing data field for AI 10 at position 37, invalid character at index 2", result.getErrorMessage());
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/AB%20CD");
+        assertEquals("Error parsing data field for AI 10 at position 37, invalid character at index 2", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/AB%4");
+        assertEquals("Error parsing data field for AI 10 at position 37, invalid percent encoding", result.getErrorMessage());
+
+        assertEquals(ElementStrings.ParseError.INVALID_PERCENT_ENCODING, DigitalLink.parse("https://id.gs1.org/01/09506000134352/10/%C3%A5").getError());
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_TOO_SHORT, DigitalLink.parse("https://id.gs1.org/01/09506000134352?10=").getError());
+    }
+
+    @Test
+    public void testParseFailsOnUnrecognizedAI() {
+        ElementStrings.ParseResult result = DigitalLink.parse("https://id.gs1.org/01/09506000134352/05/ABC");
+        assertTrue(result.isPartial());
+        assertEquals("09506000134352", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals("Unrecognized AI at position 37", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352?0512=ABC");
+        assertEquals("Unrecognized AI at position 37", result.getErrorMessage());
+
+        result = DigitalLink.parse("https://id.gs1.org/01/09506000134352?310=000189");
+        assertEquals("Unrecognized AI at position 37", result.getErrorMessage());
+    }
+
+    @Test
+    public void testParseFailsOnInvalidUri() {
+        for (String uri : new String[]{"", "01/09506000134352", "https:/id.gs1.org/01/09506000134352", "https://id.gs1.org", "https://id.gs1.org?01=09506000134352", "https://id.gs1.org/product/123"}) {
+            ElementStrings.ParseResult result = DigitalLink.parse(uri);
+            assertTrue(uri, result.isPartial());
+            assertEquals(uri, ElementStrings.ParseError.INVALID_URI, result.getError());
+        }
+        assertEquals("Invalid URI at position 0", DigitalLink.parse("id.gs1.org/01/09506000134352").getErrorMessage());
+        assertEquals("Invalid URI at position 19", DigitalLink.parse("https://id.gs1.org/01").getErrorMessage());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testParseThrowsNPEOnNull() {
+        DigitalLink.parse(null);
+    }
+}
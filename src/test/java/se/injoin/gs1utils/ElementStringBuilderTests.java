@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ElementStringBuilderTests {
+
+    @Test
+    public void testSeparatorOnlyAfterVariableLengthDataFields() {
+        ElementStringBuilder builder = new ElementStringBuilder()
+                .add(ApplicationIdentifier.GTIN, "97311876341811")
+                .add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "ABC")
+                .add(ApplicationIdentifier.ITEM_NET_WEIGHT_KG, "3000752")
+                .add(ApplicationIdentifier.SERIAL_NUMBER, "XYZ");
+        assertEquals("0197311876341811" + "10ABC\u001D" + "3103000752" + "21XYZ", builder.toString());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ElementStringBuilder builder = new ElementStringBuilder()
+                .add(ApplicationIdentifier.GTIN, "97311876341811")
+                .add(ApplicationIdentifier.EXPIRATION_DATE_AND_TIME, "1705221310")
+                .add(ApplicationIdentifier.AMOUNT_PAYABLE, "2995")
+                .add("7030", "111ABC")
+                .add("91", "internal")
+                .addDate(ApplicationIdentifier.BEST_BEFORE_DATE, 2017, 8, 9)
+                .addDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG, 752, 3);
+        String elementStrings = builder.toString();
+        assertEquals(elementStrings.length(), builder.length());
+
+        ElementStrings.ParseResult result = ElementStrings.parse(elementStrings);
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals(7, result.getElementsByString().size());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(new BigDecimal("9.95"), result.getDecimal(ApplicationIdentifier.AMOUNT_PAYABLE));
+        assertEquals(Arrays.asList("111", "ABC"), result.getObject("7030"));
+        assertEquals("internal", result.getString("91"));
+        assertEquals(17387, result.getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertEquals(new BigDecimal("0.752"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertFalse(elementStrings.endsWith("\u001D"));
+    }
+
+    @Test
+    public void testAddDate() {
+        assertEquals("15170809", new ElementStringBuilder().addDate(ApplicationIdentifier.BEST_BEFORE_DATE, 17387).toString());
+        assertEquals("15170800", new ElementStringBuilder().addDate(ApplicationIdentifier.BEST_BEFORE_DATE, 2017, 8, 0).toString());
+        assertEquals("11000229", new ElementStringBuilder().addDate(ApplicationIdentifier.PRODUCTION_DATE, 2000, 2, 29).toString());
+    }
+
+    @Test
+    public void testAddDecimalPadsFixedLength() {
+        assertEquals("3103000752", new ElementStringBuilder().addDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG, 752, 3).toString());
+        assertEquals("3902995", new ElementStringBuilder().addDecimal(ApplicationIdentifier.AMOUNT_PAYABLE, 995, 2).toString());
+    }
+
+    @Test
+    public void testInvalidValueIsNotWritten() {
+        ElementStringBuilder builder = new ElementStringBuilder().add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "ABC");
+        assertInvalid(builder, ApplicationIdentifier.GTIN, "9731187634181", "Invalid data field for AI 01, data field must be exactly 14 characters long");
+        assertInvalid(builder, ApplicationIdentifier.GTIN, "9731187634181X", "Invalid data field for AI 01, data field must be numeric");
+        assertInvalid(builder, ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "123456789012345678901", "Invalid data field for AI 10, data field must be at most 20 characters long");
+        assertInvalid(builder, ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "A\u001DB", "Invalid data field for AI 10, invalid character at index 1");
+        assertInvalid(builder, ApplicationIdentifier.EXPIRATION_DATE_AND_TIME, "17050112345", "Invalid data field for AI 7003, data field must be at most 10 characters long");
+        assertInvalid(builder, ApplicationIdentifier.COUNTRY_OF_INITIAL_PROCESSING, "752528620044752208", "Invalid data field for AI 423, data field must be at most 15 characters long");
+        assertInvalid(builder, ApplicationIdentifier.BEST_BEFORE_DATE, "171309", "Invalid data field for AI 15, invalid date");
+        assertInvalid(builder, ApplicationIdentifier.ITEM_NET_WEIGHT_KG, "X000752", "Invalid data field for AI 310, decimal point indicator must be a digit");
+        assertEquals("10ABC", builder.toString());
+
+        try {
+            builder.addDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG, 1000000, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid data field for AI 310, data field must be at most 6 characters long", e.getMessage());
+        }
+        try {
+            builder.addDate(ApplicationIdentifier.BEST_BEFORE_DATE, 1900, 1, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid data field for AI 15, year 1900 can not be written with two digits", e.getMessage());
+        }
+        try {
+            builder.add("05", "ABC");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unrecognized AI 05", e.getMessage());
+        }
+        assertEquals("10ABC", builder.toString());
+        assertEquals("10ABC\u001D21XYZ", builder.add(ApplicationIdentifier.SERIAL_NUMBER, "XYZ").toString());
+    }
+
+    @Test
+    public void testGetCharsAndBytes() {
+        ElementStringBuilder builder = new ElementStringBuilder()
+                .add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "ABC")
+                .add(ApplicationIdentifier.SERIAL_NUMBER, "XYZ");
+
+        char[] chars = new char[12];
+        assertEquals(11, builder.getChars(chars, 1));
+        assertEquals("10ABC\u001D21XYZ", new String(chars, 1, 11));
+
+        byte[] bytes = new byte[11];
+        assertEquals(11, builder.getAsciiBytes(bytes, 0));
+        assertEquals(0x1D, bytes[5]);
+        assertEquals('Z', bytes[10]);
+
+        assertEquals("]d210ABC\u001D21XYZ", builder.appendTo(new StringBuilder("]d2")).toString());
+
+        try {
+            builder.getChars(new char[10], 0);
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+        try {
+            builder.getAsciiBytes(new byte[11], 1);
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+    }
+
+    @Test
+    public void testReset() {
+        ElementStringBuilder builder = new ElementStringBuilder().add(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, "ABC");
+        builder.reset();
+        assertEquals(0, builder.length());
+        assertEquals("21XYZ", builder.add(ApplicationIdentifier.SERIAL_NUMBER, "XYZ").toString());
+    }
+
+    private static void assertInvalid(ElementStringBuilder builder, ApplicationIdentifier identifier, String value, String message) {
+        try {
+            builder.add(identifier, value);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
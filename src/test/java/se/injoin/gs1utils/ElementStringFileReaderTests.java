@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ElementStringFileReaderTests {
+
+    private static final String SEQUENCE_1 = "0197311876341811310300752015170809";
+    private static final String SEQUENCE_2 = "011730032756000410170522243\u001D17170619";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadLines() throws IOException {
+        File file = write(SEQUENCE_1 + "\n" + SEQUENCE_2 + "\r\n\n" + "00123\n" + SEQUENCE_1);
+        ElementStringFileReader reader = new ElementStringFileReader(file);
+        try {
+            assertTrue(reader.next());
+            assertEquals(0, reader.getRecordOffset());
+            assertEquals("97311876341811", reader.getResult().getString(ApplicationIdentifier.GTIN));
+
+            assertTrue(reader.next());
+            assertEquals(SEQUENCE_1.length() + 1, reader.getRecordOffset());
+            assertFalse(reader.getResult().isPartial());
+            assertEquals("17300327560004", reader.getResult().getString(ApplicationIdentifier.GTIN));
+
+            assertTrue(reader.next());
+            assertTrue(reader.getResult().isPartial());
+            assertEquals("Error parsing data field for AI 00 at position 0, data field must be exactly 18 characters long", reader.getResult().getErrorMessage());
+
+            assertTrue(reader.next());
+            assertEquals(ElementStrings.parse(SEQUENCE_1).getElementsByString(), reader.getResult().getElementsByString());
+
+            assertFalse(reader.next());
+            assertEquals(-1, reader.getRecordOffset());
+            assertEquals(file.length(), reader.getNextOffset());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadAcrossRegions() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            String sequence = (i % 2 == 0 ? SEQUENCE_1 : SEQUENCE_2) + "10" + i;
+            content.append(sequence).append('\n');
+            expected.add(Integer.toString(i));
+        }
+        ElementStringFileReader reader = new ElementStringFileReader(write(content.toString()), 0, 100);
+        List<String> actual = new ArrayList<String>();
+        try {
+            while (reader.next()) {
+                assertFalse(reader.getResult().isPartial());
+                actual.add(reader.getResult().getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testResumeFromOffset() throws IOException {
+        File file = write(SEQUENCE_1 + "\n" + SEQUENCE_2 + "\n" + "10ABC\n");
+        long offset;
+        ElementStringFileReader reader = new ElementStringFileReader(file);
+        try {
+            assertTrue(reader.next());
+            offset = reader.getNextOffset();
+        } finally {
+            reader.close();
+        }
+
+        reader = new ElementStringFileReader(file, offset);
+        List<String> batches = new ArrayList<String>();
+        try {
+            while (reader.next()) {
+                batches.add(reader.getResult().getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(Arrays.asList("170522243", "ABC"), batches);
+    }
+
+    @Test
+    public void testLazyDecoding() throws IOException {
+        ElementStringFileReader reader = new ElementStringFileReader(write(SEQUENCE_1 + "\n"));
+        try {
+            reader.setLazyDecoding(true);
+            assertTrue(reader.next());
+            assertEquals(17387, reader.getResult().getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+            assertEquals("97311876341811", reader.getResult().getString(ApplicationIdentifier.GTIN));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testLineLongerThanRegion() throws IOException {
+        ElementStringFileReader reader = new ElementStringFileReader(write(SEQUENCE_1 + "\n" + SEQUENCE_1 + SEQUENCE_1 + "\n"), 0, 40);
+        try {
+            assertTrue(reader.next());
+            reader.next();
+            fail();
+        } catch (IOException e) {
+            assertEquals("Line at offset 35 is longer than 40 bytes", e.getMessage());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        ElementStringFileReader reader = new ElementStringFileReader(write(""));
+        try {
+            assertFalse(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOffsetOutOfBounds() throws IOException {
+        new ElementStringFileReader(write(SEQUENCE_1), SEQUENCE_1.length() + 1);
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
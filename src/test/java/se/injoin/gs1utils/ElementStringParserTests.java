@@ -0,0 +1,341 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class ElementStringParserTests {
+
+    private static final String SEQUENCE_1 = "0197311876341811310300752015170809";
+    private static final String SEQUENCE_2 = "011730032756000410170522243\u001D17170619";
+
+    @Test
+    public void testParseReusesResult() {
+        ElementStringParser parser = new ElementStringParser();
+
+        ElementStrings.ParseResult result1 = parser.parse(SEQUENCE_1);
+        assertFalse(result1.isPartial());
+        assertEquals(3, result1.getElementsByString().size());
+        assertEquals(new BigDecimal("7.520"), result1.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+
+        ElementStrings.ParseResult result2 = parser.parse(SEQUENCE_2);
+        assertSame(result1, result2);
+        assertFalse(result2.isPartial());
+        assertEquals(3, result2.getElementsByString().size());
+        assertEquals(3, result2.getElementsByEnum().size());
+        assertEquals("17300327560004", result2.getString(ApplicationIdentifier.GTIN));
+        assertFalse(result2.contains(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertFalse(result2.contains(ApplicationIdentifier.ITEM_NET_WEIGHT_KG.getKey()));
+    }
+
+    @Test
+    public void testParseClearsErrorFromPreviousParse() {
+        ElementStringParser parser = new ElementStringParser();
+
+        ElementStrings.ParseResult result = parser.parse("00123");
+        assertTrue(result.isPartial());
+        assertNotNull(result.getErrorMessage());
+
+        result = parser.parse(SEQUENCE_1);
+        assertFalse(result.isPartial());
+        assertNull(result.getErrorMessage());
+        assertEquals(ElementStrings.parse(SEQUENCE_1).getElementsByString(), result.getElementsByString());
+    }
+
+    @Test
+    public void testParseIntoCallerResult() {
+        ElementStringParser parser = new ElementStringParser();
+        ElementStrings.ParseResult result = new ElementStrings.ParseResult();
+
+        assertSame(result, parser.parse(SEQUENCE_1, result));
+        assertNotSame(result, parser.parse(SEQUENCE_2));
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+
+        assertSame(result, parser.parse(SEQUENCE_2, result));
+        assertEquals("17300327560004", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(3, result.getElementsByString().size());
+    }
+
+    @Test
+    public void testParseRanges() throws Exception {
+        ElementStringParser parser = new ElementStringParser();
+        String padded = "XX" + SEQUENCE_1 + "YY";
+
+        ElementStrings.ParseResult result = parser.parse(padded.toCharArray(), 2, SEQUENCE_1.length());
+        assertFalse(result.isPartial());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+
+        result = parser.parseAscii(padded.getBytes("US-ASCII"), 2, SEQUENCE_1.length());
+        assertFalse(result.isPartial());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+
+        result = parser.parseAscii(ByteBuffer.wrap(SEQUENCE_2.getBytes("US-ASCII")));
+        assertFalse(result.isPartial());
+        assertEquals("17300327560004", result.getString(ApplicationIdentifier.GTIN));
+    }
+
+    @Test
+    public void testParseWithHandler() {
+        ElementStringParser parser = new ElementStringParser();
+        final int[] count = new int[1];
+        ElementStrings.ElementHandler handler = new ElementStrings.ElementHandler() {
+            public boolean element(String key, ApplicationIdentifier identifier, int dataFieldStart, int dataFieldEnd) {
+                count[0]++;
+                return true;
+            }
+
+            public void error(ElementStrings.ParseError error, String key, int position) {
+                fail();
+            }
+        };
+        parser.parse(SEQUENCE_1, handler);
+        parser.parse(SEQUENCE_2, handler);
+        assertEquals(6, count[0]);
+    }
+
+    @Test
+    public void testLazyDecoding() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+        assertTrue(parser.isLazyDecoding());
+
+        ElementStrings.ParseResult result = parser.parse(new StringBuilder(SEQUENCE_1));
+        assertFalse(result.isPartial());
+        assertTrue(result.contains(ApplicationIdentifier.GTIN));
+        assertTrue(result.contains(ApplicationIdentifier.BEST_BEFORE_DATE.getKey()));
+        assertEquals(new BigDecimal("7.520"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertSame(result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG.getKey()));
+        assertEquals(ElementStrings.parse(SEQUENCE_1).getDate(ApplicationIdentifier.BEST_BEFORE_DATE), result.getDate("15"));
+        assertEquals("97311876341811", result.getObject(ApplicationIdentifier.GTIN));
+    }
+
+    @Test
+    public void testLazyDecodingOfAllElements() {
+        String sequence = "0197311876341811310300752015170809" + "7030111ABCDEF\u001D" + "7007170522170702" + "391212345678";
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+
+        ElementStrings.ParseResult expected = ElementStrings.parse(sequence);
+        ElementStrings.ParseResult result = parser.parse(sequence);
+        assertFalse(expected.isPartial());
+        assertEquals(expected.getElementsByString(), result.getElementsByString());
+        assertEquals(expected.getElementsByEnum(), result.getElementsByEnum());
+        assertEquals(new ArrayList<Object>(expected.getElementsByString().keySet()), new ArrayList<Object>(result.getElementsByString().keySet()));
+    }
+
+    @Test
+    public void testLazyDecodingStillValidates() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+
+        ElementStrings.ParseResult result = parser.parse(SEQUENCE_1 + "17170229");
+        assertTrue(result.isPartial());
+        assertEquals("Error parsing data field for AI 17 at position 34, invalid date", result.getErrorMessage());
+        assertEquals(3, result.getElementsByString().size());
+    }
+
+    @Test
+    public void testLazyDecodingOfRepeatedAI() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+
+        ElementStrings.ParseResult result = parser.parse("10ABC\u001D10DEF");
+        assertEquals("DEF", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals(1, result.getElementsByEnum().size());
+    }
+
+    @Test
+    public void testEpochDayAndSecond() {
+        String sequence = SEQUENCE_1 + "70031705221310" + "13101200" + "8008170501235959";
+        ElementStrings.ParseResult expected = ElementStrings.parse(sequence);
+        assertFalse(expected.isPartial());
+
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+        ElementStrings.ParseResult result = parser.parse(sequence);
+
+        // 2017-08-09
+        assertEquals(17387, result.getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertEquals(17387, expected.getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+        // 2010-12-31, day 00 is the last day of the month
+        assertEquals(14974, result.getEpochDay("13"));
+        assertEquals(14974, expected.getEpochDay("13"));
+        assertEquals(17308, result.getEpochDay(ApplicationIdentifier.EXPIRATION_DATE_AND_TIME));
+
+        for (ApplicationIdentifier identifier : new ApplicationIdentifier[]{ApplicationIdentifier.BEST_BEFORE_DATE, ApplicationIdentifier.PACKAGING_DATE, ApplicationIdentifier.EXPIRATION_DATE_AND_TIME, ApplicationIdentifier.PRODUCTION_DATE_AND_TIME}) {
+            long epochSecond = expected.getDate(identifier).getTime() / 1000;
+            assertEquals(epochSecond, expected.getEpochSecond(identifier));
+            assertEquals(epochSecond, result.getEpochSecond(identifier));
+        }
+    }
+
+    @Test
+    public void testEpochDayWhenNotPresent() {
+        ElementStrings.ParseResult result = ElementStrings.parse(SEQUENCE_1);
+        assertEquals(ElementStrings.ParseResult.NO_DATE, result.getEpochDay(ApplicationIdentifier.PACKAGING_DATE));
+        assertEquals(ElementStrings.ParseResult.NO_DATE, result.getEpochSecond("13"));
+    }
+
+    @Test
+    public void testEpochDayOfHarvestDate() {
+        for (boolean lazyDecoding : new boolean[]{false, true}) {
+            ElementStringParser parser = new ElementStringParser();
+            parser.setLazyDecoding(lazyDecoding);
+            ElementStrings.ParseResult result = parser.parse("7007170501");
+            assertEquals(17287, result.getEpochDay(ApplicationIdentifier.HARVEST_DATE));
+            assertEquals(((Date) result.getList(ApplicationIdentifier.HARVEST_DATE).get(0)).getTime() / 1000, result.getEpochSecond("7007"));
+
+            // The first date of a range
+            result = parser.parse("7007170501170531");
+            assertEquals(17287, result.getEpochDay(ApplicationIdentifier.HARVEST_DATE));
+        }
+        BatchParseResult batch = ElementStrings.parseBatch(Arrays.asList("7007170501170531"));
+        assertEquals(17287, batch.getColumn(ApplicationIdentifier.HARVEST_DATE).getEpochDay(0));
+    }
+
+    @Test
+    public void testUnscaledDecimal() {
+        String sequence = SEQUENCE_1 + "3922123456789012345\u001D" + "3900789";
+        ElementStrings.ParseResult expected = ElementStrings.parse(sequence);
+        assertFalse(expected.isPartial());
+
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+        ElementStrings.ParseResult result = parser.parse(sequence);
+
+        for (ElementStrings.ParseResult r : new ElementStrings.ParseResult[]{result, expected}) {
+            assertEquals(7520, r.getUnscaledDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+            assertEquals(3, r.getDecimalScale(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+            assertEquals(789, r.getUnscaledDecimal("390"));
+            assertEquals(0, r.getDecimalScale("390"));
+            assertEquals(123456789012345L, r.getUnscaledDecimal(ApplicationIdentifier.AMOUNT_PAYABLE_PER_SINGLE_ITEM));
+            assertEquals(2, r.getDecimalScale(ApplicationIdentifier.AMOUNT_PAYABLE_PER_SINGLE_ITEM));
+            assertEquals(ElementStrings.ParseResult.NO_DECIMAL, r.getUnscaledDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_POUNDS));
+            assertEquals(-1, r.getDecimalScale(ApplicationIdentifier.ITEM_NET_WEIGHT_POUNDS));
+        }
+        assertEquals(new BigDecimal("1234567890123.45"), result.getDecimal("392"));
+        assertEquals(expected.getDecimal("392"), result.getDecimal("392"));
+        assertEquals(expected.getDecimal("392").scale(), result.getDecimal("392").scale());
+    }
+
+    @Test
+    public void testCheckDigitVerification() {
+        ElementStringParser parser = new ElementStringParser();
+        assertFalse(parser.isCheckDigitVerification());
+        assertFalse(parser.parse("0197311876341810").isPartial());
+
+        parser.setCheckDigitVerification(true);
+        assertTrue(parser.isCheckDigitVerification());
+        assertFalse(parser.parse(SEQUENCE_1).isPartial());
+        assertFalse(parser.parse("00106141412345678908" + "4149520123456788").isPartial());
+
+        ElementStrings.ParseResult result = parser.parse("0197311876341810");
+        assertTrue(result.isPartial());
+        assertEquals("Error parsing data field for AI 01 at position 0, invalid check digit", result.getErrorMessage());
+
+        result = parser.parse("10ABC\u001D" + "4109520123456789");
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals("Error parsing data field for AI 410 at position 6, invalid check digit", result.getErrorMessage());
+
+        result = parser.parse("02173003275600A4");
+        assertEquals("Error parsing data field for AI 02 at position 0, data field must be numeric", result.getErrorMessage());
+
+        // Other fixed length numeric AIs are not affected
+        assertFalse(parser.parse("20" + "12").isPartial());
+    }
+
+    @Test
+    public void testCollectAllErrors() {
+        ElementStringParser parser = new ElementStringParser();
+        assertFalse(parser.isCollectAllErrors());
+        String sequence = "01123\u001D" + "10ABC\u001D" + "1517130A" + "00106141412345678908" + "4398\u001D" + "3103000189";
+        assertEquals(1, parser.parse(sequence).getErrorCount());
+
+        parser.setCollectAllErrors(true);
+        assertTrue(parser.isCollectAllErrors());
+        ElementStrings.ParseResult result = parser.parse(sequence);
+        assertTrue(result.isPartial());
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals("106141412345678908", result.getString(ApplicationIdentifier.SSCC));
+        assertEquals(new BigDecimal("0.189"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertFalse(result.contains(ApplicationIdentifier.GTIN));
+        assertFalse(result.contains(ApplicationIdentifier.BEST_BEFORE_DATE));
+
+        assertEquals(3, result.getErrorCount());
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_NOT_EXACT_LENGTH, result.getError());
+        assertEquals(result.getErrorMessage(), result.getErrorMessage(0));
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_NOT_EXACT_LENGTH, result.getError(0));
+        assertEquals("01", result.getErrorKey(0));
+        assertEquals(0, result.getErrorPosition(0));
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_NOT_NUMERIC, result.getError(1));
+        assertEquals("15", result.getErrorKey(1));
+        assertEquals(12, result.getErrorPosition(1));
+        assertEquals("Error parsing data field for AI 15 at position 12, data field must be numeric", result.getErrorMessage(1));
+        assertEquals(ElementStrings.ParseError.UNRECOGNIZED_AI, result.getError(2));
+        assertNull(result.getErrorKey(2));
+        assertEquals("Unrecognized AI at position 40", result.getErrorMessage(2));
+
+        result = parser.parse("10\u001D" + "8005ABCDEF" + "17170809");
+        assertEquals(2, result.getErrorCount());
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_TOO_SHORT, result.getError(0));
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_NOT_NUMERIC, result.getError(1));
+        assertTrue(result.contains(ApplicationIdentifier.EXPIRATION_DATE));
+
+        // An invalid variable length data field without a following separator runs to the end of the data
+        result = parser.parse("30ABC" + "17170809");
+        assertEquals(1, result.getErrorCount());
+        assertTrue(result.isEmpty());
+
+        result = parser.parse(SEQUENCE_1);
+        assertFalse(result.isPartial());
+        assertEquals(0, result.getErrorCount());
+        try {
+            result.getError(0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals("Index 0 out of range for 0 errors", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReset() {
+        ElementStrings.ParseResult result = ElementStrings.parse("00123");
+        assertTrue(result.isPartial());
+        result.reset();
+        assertFalse(result.isPartial());
+        assertNull(result.getErrorMessage());
+        assertTrue(result.isEmpty());
+        assertTrue(result.getElementsByEnum().isEmpty());
+    }
+
+    @Test
+    public void testParseThrowsNPEOnNullSequence() {
+        try {
+            new ElementStringParser().parse((CharSequence) null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("Sequence must not be null", e.getMessage());
+        }
+    }
+}
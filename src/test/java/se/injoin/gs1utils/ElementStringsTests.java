@@ -18,9 +18,18 @@ package se.injoin.gs1utils;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 
@@ -179,6 +188,22 @@ public class ElementStringsTests {
         assertEquals(new BigDecimal("7.89"), result.getDecimal(ApplicationIdentifier.AMOUNT_PAYABLE));
     }
 
+    @Test
+    public void testParseVariableLengthDecimalFollowedBySeparator() {
+        ElementStrings.ParseResult result = ElementStrings.parse("3902789\u001D0197311876341811");
+        assertFalse(result.isPartial());
+        assertEquals(new BigDecimal("7.89"), result.getDecimal(ApplicationIdentifier.AMOUNT_PAYABLE));
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+    }
+
+    @Test
+    public void testParseCustomFormatFollowedBySeparator() {
+        ElementStrings.ParseResult result = ElementStrings.parse("70031705221310\u001D10ABC");
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertTrue(result.contains(ApplicationIdentifier.EXPIRATION_DATE_AND_TIME));
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+    }
+
     @Test
     public void testParseDecimalFailsWhenDecimalPointIndicatorNotNumeric() {
         ElementStrings.ParseResult result = ElementStrings.parse("310A123456");
@@ -562,6 +587,425 @@ public class ElementStringsTests {
         assertEquals("17050838", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
     }
 
+    @Test
+    public void testParseCharSequence() {
+        ElementStrings.ParseResult result = ElementStrings.parse(new StringBuilder("011730032756000410170522243\u001D17170619"));
+        assertFalse(result.isPartial());
+        assertEquals(3, result.getElementsByString().size());
+        assertEquals("17300327560004", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals("170522243", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertDate("2017-06-19", result.getDate(ApplicationIdentifier.EXPIRATION_DATE));
+    }
+
+    @Test
+    public void testParseCharBufferWithPosition() {
+        CharBuffer buffer = CharBuffer.wrap("XX0197311876341811310300752015170809YY".toCharArray(), 2, 34);
+        ElementStrings.ParseResult result = ElementStrings.parse(buffer);
+        assertFalse(result.isPartial());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(new BigDecimal("7.520"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertDate("2017-08-09", result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void testParseCharArrayRange() {
+        char[] buf = "XX0197311876341811310300752015170809YY".toCharArray();
+        ElementStrings.ParseResult result = ElementStrings.parse(buf, 2, 34);
+        assertFalse(result.isPartial());
+        assertEquals(3, result.getElementsByString().size());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(new BigDecimal("7.520"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertDate("2017-08-09", result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+    }
+
+    @Test
+    public void testParseCharArrayRangeDoesNotReadBeyondRange() {
+        char[] buf = "10ABC3103123456".toCharArray();
+        ElementStrings.ParseResult result = ElementStrings.parse(buf, 0, 5);
+        assertFalse(result.isPartial());
+        assertEquals(1, result.getElementsByString().size());
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+    }
+
+    @Test
+    public void testParseCharArrayRangeReportsPositionRelativeToRange() {
+        char[] buf = ("XXX" + SIMPLE_SSCC + "AB").toCharArray();
+        ElementStrings.ParseResult result = ElementStrings.parse(buf, 3, buf.length - 3);
+        assertTrue(result.isPartial());
+        assertEquals("Unrecognized AI at position 20", result.getErrorMessage());
+    }
+
+    @Test
+    public void testParseCharArrayRangeThrowsOnInvalidRange() {
+        try {
+            ElementStrings.parse(new char[4], 2, 3);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParseByteArrayRange() throws Exception {
+        byte[] buf = "XX011730032756000410170522243\u001D17170619YY".getBytes("US-ASCII");
+        ElementStrings.ParseResult result = ElementStrings.parseAscii(buf, 2, buf.length - 4);
+        assertFalse(result.isPartial());
+        assertEquals(3, result.getElementsByString().size());
+        assertEquals("17300327560004", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals("170522243", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertDate("2017-06-19", result.getDate(ApplicationIdentifier.EXPIRATION_DATE));
+    }
+
+    @Test
+    public void testParseByteArrayRangeReportsPositionRelativeToRange() throws Exception {
+        byte[] buf = ("XXX" + SIMPLE_SSCC + "AB").getBytes("US-ASCII");
+        ElementStrings.ParseResult result = ElementStrings.parseAscii(buf, 3, buf.length - 3);
+        assertTrue(result.isPartial());
+        assertEquals("106141411234567897", result.getString(ApplicationIdentifier.SSCC));
+        assertEquals("Unrecognized AI at position 20", result.getErrorMessage());
+    }
+
+    @Test
+    public void testParseByteArrayDoesNotTreatHighBytesAsDigits() {
+        byte[] buf = {'1', '0', (byte) 0xB1, (byte) 0x1D, '9', '1', 'A'};
+        ElementStrings.ParseResult result = ElementStrings.parseAscii(buf, 0, buf.length);
+        assertFalse(result.isPartial());
+        assertEquals("\u00B1", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals("A", result.getString("91"));
+    }
+
+    @Test
+    public void testParseHeapByteBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap("XX0197311876341811310300752015170809".getBytes("US-ASCII"));
+        buffer.position(2);
+        ElementStrings.ParseResult result = ElementStrings.parseAscii(buffer.slice());
+        assertFalse(result.isPartial());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(new BigDecimal("7.520"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertDate("2017-08-09", result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void testParseDirectByteBuffer() throws Exception {
+        byte[] bytes = "XX7030111ABCDEF\u001d710ABC\u001d15170400".getBytes("US-ASCII");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+        buffer.put(bytes);
+        buffer.flip();
+        buffer.position(2);
+        ElementStrings.ParseResult result = ElementStrings.parseAscii(buffer);
+        assertFalse(result.isPartial());
+        assertEquals(Arrays.asList("111", "ABCDEF"), result.getList("7030"));
+        assertEquals("ABC", result.getString("710"));
+        assertDate("2017-04-30", result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertEquals(2, buffer.position());
+        assertEquals(bytes.length, buffer.limit());
+    }
+
+    @Test
+    public void testParseDecimalFailsWhenDecimalPointIndicatorMissing() {
+        ElementStrings.ParseResult result = ElementStrings.parse("310");
+        assertTrue(result.isPartial());
+        assertTrue(result.isEmpty());
+        assertEquals("Error parsing data field for AI 310 at position 0, unexpected end of data", result.getErrorMessage());
+    }
+
+    @Test
+    public void testElementMapsKeepParseOrder() {
+        ElementStrings.ParseResult result = ElementStrings.parse("10ABC\u001D" + "7030111ABC\u001D" + "0197311876341811" + "10DEF");
+        assertFalse(result.isPartial());
+        assertEquals(Arrays.asList("10", "7030", "01"), new ArrayList<String>(result.getElementsByString().keySet()));
+        assertEquals(Arrays.asList("DEF", Arrays.asList("111", "ABC"), "97311876341811"), new ArrayList<Object>(result.getElementsByString().values()));
+        assertEquals(Arrays.asList(ApplicationIdentifier.BATCH_OR_LOT_NUMBER, ApplicationIdentifier.GTIN), new ArrayList<ApplicationIdentifier>(result.getElementsByEnum().keySet()));
+        assertSame(result.getElementsByString(), result.getElementsByString());
+        try {
+            result.getElementsByString().clear();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void testParseParallel() throws Exception {
+        String[] samples = {"0197311876341811310300752015170809", "011730032756000410170522243\u001D17170619", "00123", "7030111ABC\u001D3902789"};
+        List<String> sequences = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            sequences.add(samples[i % samples.length] + (i % 7 == 0 ? "10" + i : ""));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<ElementStrings.ParseResult> results = ElementStrings.parseParallel(sequences, executor);
+            assertEquals(sequences.size(), results.size());
+            for (int i = 0; i < sequences.size(); i++) {
+                ElementStrings.ParseResult expected = ElementStrings.parse(sequences.get(i));
+                assertEquals(expected.getElementsByString(), results.get(i).getElementsByString());
+                assertEquals(expected.getErrorMessage(), results.get(i).getErrorMessage());
+            }
+            assertTrue(ElementStrings.parseParallel(new ArrayList<String>(), executor).isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseParallelThrowsNPEOnNullSequence() throws Exception {
+        List<String> sequences = new ArrayList<String>(Collections.nCopies(1000, "0197311876341811"));
+        sequences.set(500, null);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ElementStrings.parseParallel(sequences, executor);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("Sequence must not be null", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseWithSymbologyIdentifier() {
+        for (SymbologyIdentifier symbologyIdentifier : SymbologyIdentifier.values()) {
+            ElementStrings.ParseResult result = ElementStrings.parse(symbologyIdentifier.getValue() + "0197311876341811310300752015170809");
+            assertFalse(result.isPartial());
+            assertSame(symbologyIdentifier, result.getSymbologyIdentifier());
+            assertEquals(ElementStrings.parse("0197311876341811310300752015170809").getElementsByString(), result.getElementsByString());
+        }
+        assertNull(ElementStrings.parse("0197311876341811").getSymbologyIdentifier());
+    }
+
+    @Test
+    public void testParseWithSymbologyIdentifierAndLeadingSeparator() {
+        ElementStrings.ParseResult result = ElementStrings.parse("]d2\u001D0197311876341811");
+        assertFalse(result.isPartial());
+        assertSame(SymbologyIdentifier.GS1_DATAMATRIX, result.getSymbologyIdentifier());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+
+        result = ElementStrings.parse("\u001D0197311876341811");
+        assertFalse(result.isPartial());
+        assertNull(result.getSymbologyIdentifier());
+        assertEquals("97311876341811", result.getString(ApplicationIdentifier.GTIN));
+    }
+
+    @Test
+    public void testParseWithSymbologyIdentifierReportsPositionInSequence() {
+        ElementStrings.ParseResult result = ElementStrings.parse("]C10197311876341811" + "05123");
+        assertEquals("Unrecognized AI at position 19", result.getErrorMessage());
+
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse("]Q30197311876341811", handler);
+        assertEquals(Arrays.asList("01 GTIN 5-19"), handler.events);
+    }
+
+    @Test
+    public void testParseFailsOnUnsupportedSymbologyIdentifier() {
+        for (String sequence : new String[]{"]C00197311876341811", "]d10197311876341811", "]X", "]"}) {
+            ElementStrings.ParseResult result = ElementStrings.parse(sequence);
+            assertTrue(result.isPartial());
+            assertTrue(result.isEmpty());
+            assertEquals(ElementStrings.ParseError.UNSUPPORTED_SYMBOLOGY_IDENTIFIER, result.getError());
+            assertEquals("Unsupported symbology identifier at position 0", result.getErrorMessage());
+        }
+
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse("]C00197311876341811", handler);
+        assertEquals(Arrays.asList("error UNSUPPORTED_SYMBOLOGY_IDENTIFIER null 0"), handler.events);
+    }
+
+    @Test
+    public void testParseReportsErrorCode() {
+        ElementStrings.ParseResult result = ElementStrings.parse("0197311876341811" + "00123");
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_NOT_EXACT_LENGTH, result.getError());
+        assertEquals("00", result.getErrorKey());
+        assertEquals(16, result.getErrorPosition());
+        assertEquals("Error parsing data field for AI 00 at position 16, data field must be exactly 18 characters long", result.getErrorMessage());
+
+        result = ElementStrings.parse("0197311876341811" + "05123");
+        assertEquals(ElementStrings.ParseError.UNRECOGNIZED_AI, result.getError());
+        assertNull(result.getErrorKey());
+        assertEquals(16, result.getErrorPosition());
+        assertEquals("Unrecognized AI at position 16", result.getErrorMessage());
+
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_TOO_SHORT, ElementStrings.parse("7030123").getError());
+        assertEquals(ElementStrings.ParseError.INVALID_DECIMAL_POINT_INDICATOR, ElementStrings.parse("310X123456").getError());
+        assertEquals(ElementStrings.ParseError.UNEXPECTED_END_OF_DATA, ElementStrings.parse("310").getError());
+    }
+
+    @Test
+    public void testParseReportsNoErrorOnSuccess() {
+        ElementStrings.ParseResult result = ElementStrings.parse("0197311876341811");
+        assertNull(result.getError());
+        assertNull(result.getErrorKey());
+        assertEquals(-1, result.getErrorPosition());
+        assertNull(result.getErrorMessage());
+    }
+
+    @Test
+    public void testParseWithHandler() {
+        String sequence = "0197393720061342310200071415170710" + "10170411\u001D" + "7030111ABC\u001D" + "9010";
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse(sequence, handler);
+        assertEquals(Arrays.asList(
+                "01 GTIN 2-16",
+                "310 ITEM_NET_WEIGHT_KG 19-26",
+                "15 BEST_BEFORE_DATE 28-34",
+                "10 BATCH_OR_LOT_NUMBER 36-42",
+                "7030 null 47-53",
+                "90 MUTUALLY_AGREED_INFORMATION 56-58"), handler.events);
+        assertEquals("97393720061342", sequence.substring(2, 16));
+        assertEquals("2000714", sequence.substring(19, 26));
+        assertEquals("170411", sequence.substring(36, 42));
+    }
+
+    @Test
+    public void testParseWithHandlerStopsWhenHandlerReturnsFalse() {
+        RecordingHandler handler = new RecordingHandler();
+        handler.maxElements = 1;
+        ElementStrings.parse("0197311876341811310300752015170809", handler);
+        assertEquals(Arrays.asList("01 GTIN 2-16"), handler.events);
+    }
+
+    @Test
+    public void testParseWithHandlerReportsUnrecognizedAI() {
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse(SIMPLE_SSCC + "AB", handler);
+        assertEquals(Arrays.asList("00 SSCC 2-20", "error UNRECOGNIZED_AI null 20"), handler.events);
+    }
+
+    @Test
+    public void testParseWithHandlerReportsInvalidDataField() {
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse(SIMPLE_SSCC + "15170229", handler);
+        assertEquals(Arrays.asList("00 SSCC 2-20", "error INVALID_DATE 15 20"), handler.events);
+    }
+
+    @Test
+    public void testParseWithHandlerValidatesDates() {
+        assertParseWithHandlerSucceeds("15160229");
+        assertParseWithHandlerSucceeds("15000229");
+        assertParseWithHandlerSucceeds("15171231");
+        assertParseWithHandlerSucceeds("15170200");
+        assertParseWithHandlerSucceeds("70031705012359");
+        assertParseWithHandlerSucceeds("8008170501235959");
+        assertParseWithHandlerFails("15170229", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("15171301", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("15170001", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("15170431", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("70031705012400", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("70031705012360", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("8008170501235960", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+        assertParseWithHandlerFails("7007170501170532", ElementStrings.ParseError.INVALID_DATE, "invalid date");
+    }
+
+    @Test
+    public void testParseWithHandlerValidatesCustomFormats() {
+        assertParseWithHandlerSucceeds("391212345678");
+        assertParseWithHandlerFails("3912123456X8", ElementStrings.ParseError.DATA_FIELD_NOT_NUMERIC, "data field must be numeric");
+        assertParseWithHandlerFails("42311122233", ElementStrings.ParseError.INVALID_DATA_FIELD_LENGTH, "invalid data field length");
+        assertParseWithHandlerFails("700717052211", ElementStrings.ParseError.INVALID_DATA_FIELD_LENGTH, "invalid data field length");
+        assertParseWithHandlerFails("7030X11ABC", ElementStrings.ParseError.DATA_FIELD_NOT_NUMERIC, "data field must be numeric");
+    }
+
+    @Test
+    public void testParseWithHandlerThrowsNPEOnNullHandler() {
+        try {
+            ElementStrings.parse(SIMPLE_SSCC, (ElementStrings.ElementHandler) null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("Handler must not be null", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseAmountWithCurrencyFailsWhenAmountNotNumeric() {
+        ElementStrings.ParseResult result = ElementStrings.parse("3912123-5");
+        assertTrue(result.isPartial());
+        assertTrue(result.isEmpty());
+        assertEquals("Error parsing data field for AI 391 at position 0, data field must be numeric", result.getErrorMessage());
+    }
+
+    @Test
+    public void testDecodeDateAndTimeMatchesCalendar() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            for (String id : new String[]{"UTC", "Europe/Stockholm", "America/Sao_Paulo"}) {
+                TimeZone.setDefault(TimeZone.getTimeZone(id));
+                for (int year = 0; year < 100; year++) {
+                    for (int month = 1; month <= 12; month++) {
+                        for (int day = 0; day <= 31; day++) {
+                            String date = twoDigits(year) + twoDigits(month) + twoDigits(day);
+                            ElementStrings.SequenceReader reader = new ElementStrings.SequenceReader(date + "0230");
+                            assertDecodesAsCalendar(id + " " + date, decodeWithCalendar(year, month, day, 0, 0), reader, 6);
+                            assertDecodesAsCalendar(id + " " + date + "0230", decodeWithCalendar(year, month, day, 2, 30), reader, 10);
+                        }
+                    }
+                }
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void testDateAndTimeSkippedByDaylightSavingIsInvalid() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Sao_Paulo"));
+            assertEquals("Error parsing data field for AI 17 at position 0, invalid date", ElementStrings.parse("17181104").getErrorMessage());
+            assertFalse(ElementStrings.parse("17181105").isPartial());
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Stockholm"));
+            assertEquals("Error parsing data field for AI 8008 at position 0, invalid date", ElementStrings.parse("8008210328023000").getErrorMessage());
+            assertEquals("Error parsing data field for AI 8008 at position 0, invalid date", ElementStrings.parse("800821032802").getErrorMessage());
+            assertEquals("Error parsing data field for AI 7003 at position 0, invalid date", ElementStrings.parse("70032103280230").getErrorMessage());
+            assertFalse(ElementStrings.parse("70032103280330").isPartial());
+            // The hour repeated when daylight saving ends is valid
+            assertFalse(ElementStrings.parse("70032110310230").isPartial());
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void testSeparatorInsideDataFieldOf703sIsInvalid() {
+        // A separator only ends a data field, earlier versions skipped one after the country code
+        ElementStrings.ParseResult result = ElementStrings.parse("7030752\u001DABC");
+        assertTrue(result.isPartial());
+        assertEquals("Error parsing data field for AI 7030 at position 0, data field must be at least 1 characters long", result.getErrorMessage());
+    }
+
+    private static String twoDigits(int n) {
+        return n < 10 ? "0" + n : Integer.toString(n);
+    }
+
+    private static void assertDecodesAsCalendar(String message, Date expected, ElementStrings.SequenceReader reader, int length) {
+        boolean valid = reader.validateDateAndTime(0, length);
+        assertEquals(message, expected != null, valid);
+        if (valid) {
+            assertEquals(message, expected, reader.decodeDateAndTime(0, length));
+        }
+    }
+
+    // Date decoding as previously done using Calendar, returns null for invalid dates
+    private static Date decodeWithCalendar(int year, int month, int day, int hour, int minutes) {
+        Calendar calendar = Calendar.getInstance();
+        year = new ElementStrings.SequenceReader("").resolveTwoDigitYear(year, calendar.get(Calendar.YEAR));
+        boolean lastOfMonth = day == 0;
+        day = day == 0 ? 1 : day;
+        calendar.clear();
+        calendar.setLenient(false);
+        try {
+            calendar.set(year, month - 1, day, hour, minutes, 0);
+            if (lastOfMonth) {
+                calendar.add(Calendar.MONTH, 1);
+                calendar.add(Calendar.DAY_OF_MONTH, -1);
+            }
+            return calendar.getTime();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @Test
     public void testResolveTwoDigitYear() {
         ElementStrings.SequenceReader r = new ElementStrings.SequenceReader("");
@@ -594,6 +1038,39 @@ public class ElementStringsTests {
         assertEquals(2050, r.resolveTwoDigitYear(50,2099));
     }
 
+    private void assertParseWithHandlerSucceeds(String sequence) {
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse(sequence, handler);
+        assertEquals(1, handler.events.size());
+        assertFalse(handler.events.get(0).startsWith("error"));
+        assertFalse(ElementStrings.parse(sequence).isPartial());
+    }
+
+    private void assertParseWithHandlerFails(String sequence, ElementStrings.ParseError error, String message) {
+        RecordingHandler handler = new RecordingHandler();
+        ElementStrings.parse(sequence, handler);
+        assertEquals(1, handler.events.size());
+        assertTrue(handler.events.get(0), handler.events.get(0).startsWith("error " + error + " "));
+        ElementStrings.ParseResult result = ElementStrings.parse(sequence);
+        assertEquals(error, result.getError());
+        assertTrue(result.getErrorMessage().endsWith(message));
+    }
+
+    private static class RecordingHandler implements ElementStrings.ElementHandler {
+
+        private final List<String> events = new ArrayList<String>();
+        private int maxElements = Integer.MAX_VALUE;
+
+        public boolean element(String key, ApplicationIdentifier identifier, int dataFieldStart, int dataFieldEnd) {
+            events.add(key + " " + identifier + " " + dataFieldStart + "-" + dataFieldEnd);
+            return events.size() < maxElements;
+        }
+
+        public void error(ElementStrings.ParseError error, String key, int position) {
+            events.add("error " + error + " " + key + " " + position);
+        }
+    }
+
     private void assertDate(String expected, Date actual) {
         assertEquals(expected, new SimpleDateFormat("yyy-MM-dd").format(actual));
     }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class HumanReadableInterpretationTests {
+
+    @Test
+    public void testParse() {
+        ElementStrings.ParseResult result = HumanReadableInterpretation.parse("(01)09506000134352(17)201231(10)ABC");
+        assertFalse(result.isPartial());
+        assertEquals(Arrays.asList("01", "17", "10"), new ArrayList<String>(result.getElementsByString().keySet()));
+        assertEquals("09506000134352", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(ElementStrings.parse("17201231").getDate(ApplicationIdentifier.EXPIRATION_DATE), result.getDate(ApplicationIdentifier.EXPIRATION_DATE));
+        assertEquals("ABC", result.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+    }
+
+    @Test
+    public void testParseMatchesElementStrings() {
+        ElementStrings.ParseResult expected = ElementStrings.parse("0109506000134352" + "3103000189" + "3922995\u001D" + "7030111ABC\u001D" + "3912752995\u001D" + "421752123\u001D" + "21XYZ");
+        assertFalse(expected.getErrorMessage(), expected.isPartial());
+        ElementStrings.ParseResult result = HumanReadableInterpretation.parse("(01)09506000134352(3103)000189(3922)995(7030)111ABC(3912)752995(421)752123(21)XYZ");
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals(expected.getElementsByString(), result.getElementsByString());
+        assertEquals(new BigDecimal("0.189"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+    }
+
+    @Test
+    public void testParseFailsOnInvalidText() {
+        ElementStrings.ParseResult result = HumanReadableInterpretation.parse("(01)09506000134352(17)201331");
+        assertTrue(result.isPartial());
+        assertEquals(1, result.getElementsByString().size());
+        assertEquals("Error parsing data field for AI 17 at position 19, invalid date", result.getErrorMessage());
+
+        assertEquals("Missing parenthesis at position 0", HumanReadableInterpretation.parse("01)09506000134352").getErrorMessage());
+        assertEquals("Missing parenthesis at position 3", HumanReadableInterpretation.parse("(01").getErrorMessage());
+        assertEquals("Missing parenthesis at position 3", HumanReadableInterpretation.parse("(01(10)ABC").getErrorMessage());
+        assertEquals("Unrecognized AI at position 1", HumanReadableInterpretation.parse("(05)ABC").getErrorMessage());
+        assertEquals("Unrecognized AI at position 1", HumanReadableInterpretation.parse("(310)000189").getErrorMessage());
+        assertEquals("Unrecognized AI at position 1", HumanReadableInterpretation.parse("()ABC").getErrorMessage());
+        assertEquals("Error parsing data field for AI 01 at position 1, data field must be at most 14 characters long", HumanReadableInterpretation.parse("(01)095060001343521").getErrorMessage());
+        assertEquals("Error parsing data field for AI 7003 at position 1, data field must be at most 10 characters long", HumanReadableInterpretation.parse("(7003)17050112345").getErrorMessage());
+        assertEquals("Error parsing data field for AI 421 at position 1, data field must be at most 12 characters long", HumanReadableInterpretation.parse("(421)7521234567890").getErrorMessage());
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_TOO_SHORT, HumanReadableInterpretation.parse("(10)(21)XYZ").getError());
+    }
+
+    @Test
+    public void testParseEmpty() {
+        ElementStrings.ParseResult result = HumanReadableInterpretation.parse("");
+        assertFalse(result.isPartial());
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testFormat() {
+        String elementStrings = "0109506000134352" + "3103000189" + "3922995\u001D" + "7030111ABC\u001D" + "15170800" + "11170809" + "800817052213\u001D" + "21XYZ";
+        String text = "(01)09506000134352(3103)000189(3922)995(7030)111ABC(15)170800(11)170809(8008)17052213(21)XYZ";
+
+        // Lazily decoded data fields are copied as written
+        ElementStringParser parser = new ElementStringParser();
+        parser.setLazyDecoding(true);
+        assertEquals(text, HumanReadableInterpretation.format(parser.parse(elementStrings)));
+
+        // Decoded values are encoded again, day 00 is the last day of the month
+        ElementStrings.ParseResult result = ElementStrings.parse(elementStrings);
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals(text.replace("(15)170800", "(15)170831"), HumanReadableInterpretation.format(result));
+        assertEquals(result.getElementsByString(), HumanReadableInterpretation.parse(HumanReadableInterpretation.format(result)).getElementsByString());
+    }
+
+    @Test
+    public void testFormatCustomFormats() {
+        String text = "(422)752(423)752246(7003)1705221310(8008)170522131045(7007)170522170531";
+        for (String elementText : text.substring(1).split("\\(")) {
+            String single = "(" + elementText;
+            ElementStrings.ParseResult result = HumanReadableInterpretation.parse(single);
+            assertFalse(single + " " + result.getErrorMessage(), result.isPartial());
+            assertEquals(single, HumanReadableInterpretation.format(result));
+        }
+    }
+
+    @Test
+    public void testFormatProductionDateAndTimeInZoneWithHalfHourOffset() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            assertEquals("(8008)170501103000", HumanReadableInterpretation.format(ElementStrings.parse("8008170501103000")));
+            assertEquals("(8008)17050110", HumanReadableInterpretation.format(ElementStrings.parse("800817050110")));
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void testAppendTo() {
+        StringBuilder builder = new StringBuilder("HRI: ");
+        HumanReadableInterpretation.appendTo(builder, ElementStrings.parse("0109506000134352" + "10ABC"));
+        assertEquals("HRI: (01)09506000134352(10)ABC", builder.toString());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testParseThrowsNPEOnNull() {
+        HumanReadableInterpretation.parse(null);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class ImmutableParseResultTests {
+
+    private static final String SEQUENCE = "]C1" + "0197311876341811" + "3103000752" + "15170809" + "7003" + "1712312359" + "7007170101170131" + "39221234\u001D" + "4210123456\u001D" + "91ABC";
+
+    @Test
+    public void testSnapshotHasSameValues() {
+        for (boolean lazyDecoding : new boolean[]{false, true}) {
+            ElementStringParser parser = new ElementStringParser();
+            parser.setLazyDecoding(lazyDecoding);
+            ElementStrings.ParseResult result = parser.parse(SEQUENCE);
+            assertFalse(result.isPartial());
+            ImmutableParseResult snapshot = result.toImmutable();
+
+            assertFalse(snapshot.isPartial());
+            assertFalse(snapshot.isEmpty());
+            assertEquals(SymbologyIdentifier.GS1_128, snapshot.getSymbologyIdentifier());
+            assertEquals(result.getElementsByString(), snapshot.getElementsByString());
+            assertEquals(result.getElementsByEnum(), snapshot.getElementsByEnum());
+            assertTrue(snapshot.contains(ApplicationIdentifier.GTIN));
+            assertTrue(snapshot.contains("91"));
+            assertFalse(snapshot.contains(ApplicationIdentifier.SSCC));
+            assertEquals("97311876341811", snapshot.getString(ApplicationIdentifier.GTIN));
+            assertEquals("ABC", snapshot.getString("91"));
+            assertEquals(result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE), snapshot.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+            assertEquals(result.getDate("7003"), snapshot.getDate("7003"));
+            assertEquals(new BigDecimal("0.752"), snapshot.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+            assertEquals(new BigDecimal("12.34"), snapshot.getDecimal("392"));
+            assertEquals(Arrays.asList("012", "3456"), snapshot.getList(ApplicationIdentifier.SHIP_TO_POSTAL_CODE_WITH_COUNTRY));
+            assertEquals(result.getList("7007"), snapshot.getList("7007"));
+            assertEquals(result.getObject("7007"), snapshot.getObject("7007"));
+            assertNull(snapshot.getString(ApplicationIdentifier.SSCC));
+            assertNull(snapshot.getObject("10"));
+
+            assertEquals(17387, snapshot.getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+            assertEquals(result.getEpochSecond("7003"), snapshot.getEpochSecond("7003"));
+            assertEquals(ElementStrings.ParseResult.NO_DATE, snapshot.getEpochDay(ApplicationIdentifier.EXPIRATION_DATE));
+            assertEquals(752, snapshot.getUnscaledDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+            assertEquals(3, snapshot.getDecimalScale(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+            assertEquals(ElementStrings.ParseResult.NO_DECIMAL, snapshot.getUnscaledDecimal("393"));
+            assertEquals(-1, snapshot.getDecimalScale("393"));
+
+            // The snapshot is independent of the result
+            result.reset();
+            assertEquals("97311876341811", snapshot.getString(ApplicationIdentifier.GTIN));
+        }
+    }
+
+    @Test
+    public void testDatesAndListsDoNotLeakMutability() {
+        ImmutableParseResult snapshot = ElementStrings.parse(SEQUENCE).toImmutable();
+
+        Date date = snapshot.getDate(ApplicationIdentifier.BEST_BEFORE_DATE);
+        long time = date.getTime();
+        date.setTime(0);
+        assertEquals(time, snapshot.getDate(ApplicationIdentifier.BEST_BEFORE_DATE).getTime());
+        assertNotSame(snapshot.getDate(ApplicationIdentifier.BEST_BEFORE_DATE), snapshot.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+
+        ((Date) snapshot.getList("7007").get(0)).setTime(0);
+        assertTrue(((Date) snapshot.getList("7007").get(0)).getTime() != 0);
+
+        Map<ApplicationIdentifier, Object> elements = snapshot.getElementsByEnum();
+        ((Date) elements.get(ApplicationIdentifier.BEST_BEFORE_DATE)).setTime(0);
+        assertEquals(time, ((Date) snapshot.getElementsByEnum().get(ApplicationIdentifier.BEST_BEFORE_DATE)).getTime());
+        try {
+            elements.remove(ApplicationIdentifier.GTIN);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDatesAreNotAffectedByChangedTimeZone() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            for (boolean lazyDecoding : new boolean[]{false, true}) {
+                TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+                ElementStringParser parser = new ElementStringParser();
+                parser.setLazyDecoding(lazyDecoding);
+                ElementStrings.ParseResult result = parser.parse("8008170501103000\u001D" + "15170809" + "7007170101170131");
+                ImmutableParseResult snapshot = result.toImmutable();
+                Date productionDate = result.getDate(ApplicationIdentifier.PRODUCTION_DATE_AND_TIME);
+                Date bestBeforeDate = result.getDate(ApplicationIdentifier.BEST_BEFORE_DATE);
+                Object harvestDates = result.getObject(ApplicationIdentifier.HARVEST_DATE);
+                long epochSecond = result.getEpochSecond(ApplicationIdentifier.PRODUCTION_DATE_AND_TIME);
+
+                TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+                assertEquals(productionDate, snapshot.getDate(ApplicationIdentifier.PRODUCTION_DATE_AND_TIME));
+                assertEquals(bestBeforeDate, snapshot.getDate(ApplicationIdentifier.BEST_BEFORE_DATE));
+                assertEquals(harvestDates, snapshot.getList(ApplicationIdentifier.HARVEST_DATE));
+                assertEquals(epochSecond, snapshot.getEpochSecond(ApplicationIdentifier.PRODUCTION_DATE_AND_TIME));
+                assertEquals(17287, snapshot.getEpochDay(ApplicationIdentifier.PRODUCTION_DATE_AND_TIME));
+                assertEquals(17387, snapshot.getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+                assertEquals(17167, snapshot.getEpochDay(ApplicationIdentifier.HARVEST_DATE));
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCollectAllErrors(true);
+        ImmutableParseResult snapshot = parser.parse("01123\u001D" + "10ABC\u001D" + "4398\u001D" + "15170809").toImmutable();
+        assertTrue(snapshot.isPartial());
+        assertEquals("ABC", snapshot.getString(ApplicationIdentifier.BATCH_OR_LOT_NUMBER));
+        assertEquals(17387, snapshot.getEpochDay(ApplicationIdentifier.BEST_BEFORE_DATE));
+        assertEquals(ElementStrings.ParseError.DATA_FIELD_NOT_EXACT_LENGTH, snapshot.getError());
+        assertEquals("01", snapshot.getErrorKey());
+        assertEquals(0, snapshot.getErrorPosition());
+        assertEquals("Error parsing data field for AI 01 at position 0, data field must be exactly 14 characters long", snapshot.getErrorMessage());
+        assertEquals(2, snapshot.getErrorCount());
+        assertEquals(ElementStrings.ParseError.UNRECOGNIZED_AI, snapshot.getError(1));
+        assertNull(snapshot.getErrorKey(1));
+        assertEquals(12, snapshot.getErrorPosition(1));
+        assertEquals("Unrecognized AI at position 12", snapshot.getErrorMessage(1));
+
+        snapshot = ElementStrings.parse("0217300327560004").toImmutable();
+        assertNull(snapshot.getError());
+        assertNull(snapshot.getErrorMessage());
+        assertEquals(-1, snapshot.getErrorPosition());
+        assertEquals(0, snapshot.getErrorCount());
+    }
+
+    @Test
+    public void testAssociationError() {
+        ElementStrings.ParseResult result = ElementStrings.parse("0217300327560004");
+        result.validateAssociations();
+        ImmutableParseResult snapshot = result.toImmutable();
+        assertEquals("AI 02 requires AI 37", snapshot.getErrorMessage());
+        assertEquals(-1, snapshot.getErrorPosition());
+    }
+
+    @Test
+    public void testCustomDecoderValueIsKept() {
+        final Object value = new Object();
+        ElementStringParser parser = new ElementStringParser();
+        parser.setCustomApplicationIdentifiers(new CustomApplicationIdentifiers.Builder()
+                .define("91", ApplicationIdentifier.Format.ALPHANUMERIC_VARIABLE, 1, 30, new CustomApplicationIdentifiers.Decoder() {
+                    public Object decode(String key, String dataField) {
+                        return value;
+                    }
+                })
+                .build());
+        ImmutableParseResult snapshot = parser.parse("91ABC\u001D" + "10LOT").toImmutable();
+        assertSame(value, snapshot.getObject("91"));
+        assertEquals("LOT", snapshot.getString("10"));
+    }
+}
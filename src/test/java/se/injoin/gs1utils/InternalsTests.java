@@ -109,6 +109,16 @@ public class InternalsTests {
         assertFalse(Internals.isDigits("A123"));
     }
 
+    @Test
+    public void testIsDigitsInRange() {
+        assertFalse(Internals.isDigits(null, 0, 1));
+        assertFalse(Internals.isDigits("123", 1, 1));
+        assertTrue(Internals.isDigits("A123B", 1, 4));
+        assertFalse(Internals.isDigits("A123B", 0, 4));
+        assertFalse(Internals.isDigits("A123B", 1, 5));
+        assertTrue(Internals.isDigits(new StringBuilder("X9"), 1, 2));
+    }
+
     @Test
     public void testValidateFormat() {
 
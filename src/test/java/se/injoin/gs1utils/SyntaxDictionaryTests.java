@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.injoin.gs1utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class SyntaxDictionaryTests {
+
+    private static final String DICTIONARY = ""
+            + "# GS1 Barcode Syntax Dictionary\n"
+            + "#\n"
+            + "00\t*?\tN18,csum,keyoff1\tdlpkey\t# SSCC\n"
+            + "01\t*?\tN14,csum,keyoff1\tex=255,37 dlpkey=22,10,21|235\t# GTIN\n"
+            + "10\t\tX..20\treq=01,02,8006,8026\t# BATCH/LOT\n"
+            + "3100-3105\t*\tN6\treq=01,02\t# NET WEIGHT (kg)\n"
+            + "\n"
+            + "4300\t?\tX..35,pcenc\treq=00\t# SHIP TO COMP\n"
+            + "4307\t?\tX2,iso3166alpha2\treq=00\t# SHIP TO COUNTRY\n"
+            + "4321\t?\tN1,yesno\treq=00\t# DANGEROUS GOODS\n"
+            + "4324\t?\tN6,yymmdd N4,hhmm\treq=00\t# NOT BEFORE DEL\n"
+            + "4326\t?\tN6,yymmdd\treq=00\t# REL DATE\n"
+            + "4330\t?\tN6 [X1,hyphen]\treq=00\t# MAX TEMP F\n"
+            + "7240\t?\tX..20\treq=01,8006\t# PROTOCOL\n"
+            + "8013\t?\tX..25,csumalpha,key\tdlpkey=22\t# GMN\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoad() throws IOException {
+        SyntaxDictionary dictionary = SyntaxDictionary.load(new StringReader(DICTIONARY));
+        assertEquals(Arrays.asList("4300", "4307", "4321", "4324", "4326", "4330", "7240", "8013"), new ArrayList<String>(dictionary.getAddedKeys()));
+        assertTrue(dictionary.isDefined("4300"));
+        assertTrue(dictionary.isDefined("01"));
+        assertTrue(dictionary.isDefined("91"));
+        assertTrue(dictionary.isDefined("310"));
+        assertFalse(dictionary.isDefined("4301"));
+        assertFalse(dictionary.isDefined("43"));
+    }
+
+    @Test
+    public void testParseWithDictionary() throws IOException {
+        ElementStringParser parser = new ElementStringParser();
+        String sequence = "0109506000134352" + "3103000189" + "4300ACME\u001D" + "4307SE" + "4321" + "1" + "43261712314324171231" + "2359" + "7240ABC\u001D" + "4330012345-" + "\u001D8013ABC123";
+        assertTrue(parser.parse(sequence).isPartial());
+
+        parser.setSyntaxDictionary(SyntaxDictionary.load(new StringReader(DICTIONARY)));
+        ElementStrings.ParseResult result = parser.parse(sequence);
+        assertFalse(result.getErrorMessage(), result.isPartial());
+        assertEquals("09506000134352", result.getString(ApplicationIdentifier.GTIN));
+        assertEquals(new BigDecimal("0.189"), result.getDecimal(ApplicationIdentifier.ITEM_NET_WEIGHT_KG));
+        assertEquals("ACME", result.getString("4300"));
+        assertEquals("SE", result.getString("4307"));
+        assertEquals("1", result.getString("4321"));
+        assertEquals(ElementStrings.parse("15171231").getDate(ApplicationIdentifier.BEST_BEFORE_DATE), result.getDate("4326"));
+        assertEquals("1712312359", result.getString("4324"));
+        assertEquals("ABC", result.getString("7240"));
+        assertEquals("012345-", result.getString("4330"));
+        assertEquals("ABC123", result.getString("8013"));
+        assertEquals(2, result.getElementsByEnum().size());
+    }
+
+    @Test
+    public void testParseValidatesDictionaryFormats() throws IOException {
+        ElementStringParser parser = new ElementStringParser();
+        parser.setSyntaxDictionary(SyntaxDictionary.load(new StringReader(DICTIONARY)));
+        assertEquals("Error parsing data field for AI 4321 at position 0, data field must be numeric", parser.parse("4321X").getErrorMessage());
+        assertEquals("Error parsing data field for AI 4324 at position 0, invalid date", parser.parse("43241713312359").getErrorMessage());
+        assertEquals("Error parsing data field for AI 4324 at position 0, data field must be exactly 4 characters long", parser.parse("4324171231235").getErrorMessage());
+        assertEquals("Error parsing data field for AI 4326 at position 0, invalid date", parser.parse("4326171331").getErrorMessage());
+        assertEquals("Error parsing data field for AI 4300 at position 0, data field must be at least 1 characters long", parser.parse("4300").getErrorMessage());
+        assertEquals("012345", parser.parse("4330012345").getString("4330"));
+
+        parser.setSyntaxDictionary(null);
+        assertEquals("Unrecognized AI at position 0", parser.parse("4300ACME").getErrorMessage());
+    }
+
+    @Test
+    public void testLoadFile() throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(DICTIONARY.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        assertTrue(SyntaxDictionary.load(file).isDefined("8013"));
+    }
+
+    @Test
+    public void testLoadFailsOnInvalidEntry() throws IOException {
+        assertInvalid("# comment\n4300 ? Q..35\n", "Invalid syntax dictionary entry on line 2, AI 4300 has no data field components");
+        assertInvalid("43A0 ? X..35\n", "Invalid syntax dictionary entry on line 1, invalid AI 43A0");
+        assertInvalid("4305-4300 ? X..35\n", "Invalid syntax dictionary entry on line 1, invalid AI range 4305-4300");
+        assertInvalid("4300 ? X..0\n", "Invalid syntax dictionary entry on line 1, invalid component X..0");
+        assertInvalid("4300 ? [X..35\n", "Invalid syntax dictionary entry on line 1, invalid component [X..35");
+    }
+
+    private static void assertInvalid(String dictionary, String message) throws IOException {
+        try {
+            SyntaxDictionary.load(new StringReader(dictionary));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}